@@ -0,0 +1,79 @@
+package br.com.zup.edu.nossalojavirtual;
+
+import br.com.zup.edu.nossalojavirtual.shared.cache.ClockCache;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Keeps the last validated {@link Jwt}s, keyed by the SHA-256 of the token, so a client sending the same token again
+ * does not pay the signature verification. An entry is dropped once the token expires and tokens without
+ * {@code exp} are never cached. The tokens are kept in a {@link ClockCache}, so decoding a cached token never locks.
+ */
+class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Clock clock;
+    private final ClockCache<String, Jwt> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    CachingJwtDecoder(JwtDecoder delegate, int maxSize, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.entries = new ClockCache<>(maxSize);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Instant now = clock.instant();
+
+        Jwt cached = entries.get(key);
+        if (cached != null) {
+            if (now.isBefore(cached.getExpiresAt())) {
+                hits.increment();
+                return cached;
+            }
+            entries.remove(key, cached);
+        }
+
+        misses.increment();
+        Jwt jwt = delegate.decode(token);
+
+        if (jwt.getExpiresAt() != null && now.isBefore(jwt.getExpiresAt())) {
+            entries.put(key, jwt);
+        }
+
+        return jwt;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many tokens had their signature verified by the delegate
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.zup.edu.nossalojavirtual;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoders;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.SupplierJwtDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.time.Clock;
+import java.util.Set;
+
+/**
+ * Decodes the bearer tokens of {@link ResourceServerConfig}.
+ * <p>
+ * When {@code security.jwt.jwk-set-file} is set the signing keys are read from that file, so the node starts and
+ * verifies tokens without reaching the issuer. Otherwise the keys are fetched from the issuer on the first request.
+ */
+@Configuration
+class JwtDecoderConfig {
+
+    @Bean
+    JwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuer,
+                          @Value("${security.jwt.jwk-set-file:}") String jwkSetFile,
+                          @Value("${security.jwt.cache.enabled:true}") boolean cacheEnabled,
+                          @Value("${security.jwt.cache.max-size:10000}") int cacheMaxSize) {
+
+        JwtDecoder decoder = jwkSetFile.isBlank()
+                ? new SupplierJwtDecoder(() -> JwtDecoders.fromIssuerLocation(issuer))
+                : fromJwkSetFile(jwkSetFile, issuer);
+
+        return cacheEnabled ? new CachingJwtDecoder(decoder, cacheMaxSize, Clock.systemUTC()) : decoder;
+    }
+
+    private JwtDecoder fromJwkSetFile(String jwkSetFile, String issuer) {
+        JWKSet jwkSet;
+        try {
+            jwkSet = JWKSet.load(new File(jwkSetFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read the JWK set " + jwkSetFile, e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("invalid JWK set " + jwkSetFile, e);
+        }
+
+        var jwtProcessor = new DefaultJWTProcessor<SecurityContext>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(
+                Set.of(JWSAlgorithm.RS256, JWSAlgorithm.RS384, JWSAlgorithm.RS512, JWSAlgorithm.ES256),
+                new ImmutableJWKSet<>(jwkSet)));
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+            // claims are checked by the validators of the Spring decoder
+        });
+
+        var decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuer));
+
+        return decoder;
+    }
+}
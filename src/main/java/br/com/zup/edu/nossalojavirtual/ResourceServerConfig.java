@@ -28,6 +28,7 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
                 .authorizeRequests()
 
                 .antMatchers(HttpMethod.POST, "/api/users").hasAuthority("SCOPE_users:write")
+                .antMatchers(HttpMethod.POST, "/api/users/import").hasAuthority("SCOPE_users:write")
                 .antMatchers(HttpMethod.GET, "/api/users").hasAuthority("SCOPE_users:read")
 
                 .antMatchers(HttpMethod.POST, "/api/categories").hasAuthority("SCOPE_categories:write")
@@ -43,6 +44,12 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
 
                 .antMatchers(HttpMethod.POST, "/api/products/*/questions").hasAuthority("SCOPE_products:write")
                 .antMatchers(HttpMethod.GET, "/api/products/*/questions").hasAuthority("SCOPE_products:read")
+                .antMatchers(HttpMethod.GET, "/api/products/*/questions/search").hasAuthority("SCOPE_products:read")
+                .antMatchers(HttpMethod.POST, "/api/products/*/photos").hasAuthority("SCOPE_products:write")
+                .antMatchers(HttpMethod.GET, "/photos/*").permitAll()
+                .antMatchers(HttpMethod.HEAD, "/photos/*").permitAll()
+                .antMatchers(HttpMethod.GET, "/photos/*/*").permitAll()
+                .antMatchers(HttpMethod.HEAD, "/photos/*/*").permitAll()
 
                 .antMatchers(HttpMethod.POST, "/api/purchase").hasAuthority("SCOPE_purchase:write")
                 .antMatchers(HttpMethod.GET, "/api/purchase").hasAuthority("SCOPE_purchase:read")
@@ -50,6 +57,10 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.POST, "/api/purchases/confirm-payment").hasAuthority("SCOPE_purchase:write")
                 .antMatchers(HttpMethod.GET, "/api/purchases/confirm-payment").hasAuthority("SCOPE_purchase:read")
 
+                .antMatchers(HttpMethod.GET, "/api/emails/archive").hasAuthority("SCOPE_emails:read")
+
+                .antMatchers(HttpMethod.GET, "/api/sellers/me/questions/stream").hasAuthority("SCOPE_products:read")
+
 
                 .anyRequest().authenticated()
                 .and()
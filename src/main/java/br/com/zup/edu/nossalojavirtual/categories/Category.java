@@ -15,6 +15,7 @@ import static org.springframework.util.Assert.notNull;
 
 @Table(name = "categories")
 @Entity
+@EntityListeners(RegisteredCategoryNamesListener.class)
 public class Category {
 
     @Id
@@ -13,9 +13,11 @@ import java.net.URI;
 class CategoryController {
 
     private final CategoryRepository categoryRepository;
+    private final RegisteredCategoryNames registeredCategoryNames;
 
-    CategoryController(CategoryRepository categoryRepository) {
+    CategoryController(CategoryRepository categoryRepository, RegisteredCategoryNames registeredCategoryNames) {
         this.categoryRepository = categoryRepository;
+        this.registeredCategoryNames = registeredCategoryNames;
     }
 
     @PostMapping
@@ -35,7 +37,7 @@ class CategoryController {
         binder.addValidators(new UniqueFieldValidator<>("name",
                         "category.name.alreadyExists",
                         NewCategoryRequest.class,
-                        categoryRepository::existsByName),
+                        registeredCategoryNames::isRegistered),
                 new SuperCategoryExistsValidator(categoryRepository));
     }
 }
@@ -1,9 +1,11 @@
 package br.com.zup.edu.nossalojavirtual.categories;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CategoryRepository extends Repository<Category, Long> {
 
@@ -15,6 +17,9 @@ public interface CategoryRepository extends Repository<Category, Long> {
 
     boolean existsById(Long id);
 
+    @Query("select c.name from Category c")
+    Stream<String> streamAllNames();
+
     void deleteAll();
 
     List<Category> findAll();
@@ -0,0 +1,62 @@
+package br.com.zup.edu.nossalojavirtual.categories;
+
+import br.com.zup.edu.nossalojavirtual.shared.validators.BloomFilter;
+import br.com.zup.edu.nossalojavirtual.shared.validators.BloomFilteredLookup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of the category names, so creating a category with a new name does not query the categories table.
+ * <p>
+ * It is filled at startup and by {@link RegisteredCategoryNamesListener} on every insert
+ */
+@Component
+public class RegisteredCategoryNames {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegisteredCategoryNames.class);
+
+    private final ObjectProvider<CategoryRepository> categoryRepository;
+    private final BloomFilteredLookup lookup;
+
+    RegisteredCategoryNames(ObjectProvider<CategoryRepository> categoryRepository,
+                            @Value("${categories.name-bloom-filter.enabled:true}") boolean enabled,
+                            @Value("${categories.name-bloom-filter.expected-insertions:100000}") long expectedInsertions,
+                            @Value("${categories.name-bloom-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.categoryRepository = categoryRepository;
+        this.lookup = new BloomFilteredLookup(new BloomFilter(expectedInsertions, falsePositiveRate),
+                name -> categoryRepository.getObject().existsByName(name),
+                enabled);
+    }
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try (Stream<String> names = categoryRepository.getObject().streamAllNames()) {
+            lookup.load(names);
+        }
+
+        BloomFilter filter = lookup.getFilter();
+        LOG.info("[CATEGORY] Loaded {} name(s) in a bloom filter of {} bytes with {} hash functions",
+                filter.getInserted(), filter.getMemoryBytes(), filter.getHashFunctions());
+    }
+
+    boolean isRegistered(String name) {
+        return lookup.apply(name);
+    }
+
+    void add(String name) {
+        lookup.add(name);
+    }
+
+    public BloomFilteredLookup getLookup() {
+        return lookup;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.zup.edu.nossalojavirtual.categories;
+
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+
+/**
+ * Entity listener of {@link Category} that adds every new name to the {@link RegisteredCategoryNames} filter
+ */
+@Component
+class RegisteredCategoryNamesListener {
+
+    private final RegisteredCategoryNames registeredCategoryNames;
+
+    RegisteredCategoryNamesListener(RegisteredCategoryNames registeredCategoryNames) {
+        this.registeredCategoryNames = registeredCategoryNames;
+    }
+
+    @PostPersist
+    void add(Category category) {
+        registeredCategoryNames.add(category.getName());
+    }
+}
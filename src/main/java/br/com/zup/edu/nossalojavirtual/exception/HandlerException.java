@@ -1,5 +1,11 @@
 package br.com.zup.edu.nossalojavirtual.exception;
 
+import br.com.zup.edu.nossalojavirtual.products.InvalidPhotoException;
+import br.com.zup.edu.nossalojavirtual.shared.ratelimit.RateLimitExceededException;
+import br.com.zup.edu.nossalojavirtual.users.PasswordHashingOverloadedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -22,4 +28,38 @@ public class HandlerException {
         return ResponseEntity.badRequest().body(mensagemDeErro);
 
     }
+
+    @ExceptionHandler(InvalidPhotoException.class)
+    public ResponseEntity<?> invalidPhotoHandle(InvalidPhotoException ex) {
+
+        MensagemDeErro mensagemDeErro = new MensagemDeErro();
+        mensagemDeErro.adicionar("photos", ex.getMessage());
+
+        return ResponseEntity.badRequest().body(mensagemDeErro);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<?> rateLimitHandle(RateLimitExceededException ex) {
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .build();
+    }
+
+    @ExceptionHandler(PasswordHashingOverloadedException.class)
+    public ResponseEntity<?> passwordHashingOverloadedHandle(PasswordHashingOverloadedException ex) {
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .build();
+    }
+
+    /**
+     * another request changed the same entity first, e.g. a payment callback racing the purchase reconciliation
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> optimisticLockingHandle(OptimisticLockingFailureException ex) {
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
 }
@@ -0,0 +1,11 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+/**
+ * A photo that cannot be stored, its message completes "O campo photos ..."
+ */
+public class InvalidPhotoException extends RuntimeException {
+
+    InvalidPhotoException(String message) {
+        super(message);
+    }
+}
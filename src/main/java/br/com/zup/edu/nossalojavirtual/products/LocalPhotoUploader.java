@@ -2,48 +2,188 @@ package br.com.zup.edu.nossalojavirtual.products;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static java.time.LocalDateTime.now;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.toList;
 
+/**
+ * Decodes, validates and writes the base64 photos of a new product to the {@link PhotoStore} on a bounded pool.
+ * <p>
+ * Each upload uses at most {@code photos.processing.per-request-parallelism} workers of the pool, each one taking the
+ * next photo until all are written, so a product with many photos cannot take the whole pool. A failure discards the
+ * photos already written. Uploads run before the transaction that saves the product, which only references the
+ * photos with {@link #keep}, so no connection is held while the photos are processed.
+ */
 @Component
 class LocalPhotoUploader implements PhotoUploader {
 
     private static final Logger LOG = LoggerFactory.getLogger(LocalPhotoUploader.class);
 
-    /**
-     * Url is composed by [userID]/[productId][timestamp]
-     */
-    private static final String PRODUCTS_BUCKET_URL = "https://s3.nosso-mercado-livre.amazon/products/%s/%s/%s";
+    private final PhotoStore photoStore;
+    private final ExecutorService executor;
+    private final int perRequestParallelism;
+
+    LocalPhotoUploader(PhotoStore photoStore,
+                       @Value("${photos.processing.threads:0}") int threads,
+                       @Value("${photos.processing.queue-capacity:256}") int queueCapacity,
+                       @Value("${photos.processing.per-request-parallelism:4}") int perRequestParallelism) {
+
+        if (perRequestParallelism < 1) {
+            throw new IllegalArgumentException("photos.processing.per-request-parallelism must be greater than 0");
+        }
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.photoStore = photoStore;
+        this.perRequestParallelism = perRequestParallelism;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("photo-processing-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 
     /**
      * @param photos     photos in base64 to upload
      * @param preProduct a previous state of a product
-     * @return a list of {@link Photo} with images url
+     * @return a list of {@link Photo} with images url, in the same order
+     * @throws InvalidPhotoException if a photo is not a supported image in base64
      */
     @Override
     public List<Photo> upload(List<String> photos, PreProduct preProduct) {
+        long start = System.nanoTime();
 
-        return photos.stream()
-                .map(photo -> storagePhoto(photo, preProduct))
+        StoredPhoto[] written = new StoredPhoto[photos.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        int workers = Math.min(perRequestParallelism, photos.size());
+        List<Future<?>> running = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            running.add(executor.submit(() -> {
+                int index;
+                while (failure.get() == null && (index = next.getAndIncrement()) < photos.size()) {
+                    try {
+                        written[index] = storagePhoto(photos.get(index), preProduct);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }));
+        }
+
+        awaitAll(running, failure);
+
+        List<StoredPhoto> stored = Arrays.stream(written)
+                .filter(photo -> photo != null)
                 .collect(toList());
 
+        if (failure.get() != null) {
+            stored.forEach(photo -> photoStore.discard(photo.getHash()));
+            throw failure.get();
+        }
+
+        LOG.info("[PRODUCT] [PHOTO] Stored {} photo(s) for product {} in {} ms", stored.size(), preProduct.getId(),
+                NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        return stored.stream()
+                .map(StoredPhoto::toPhoto)
+                .collect(toList());
+    }
+
+    @Override
+    public void keep(List<Photo> photos) {
+        photoStore.retainAll(photos.stream()
+                .map(photo -> photoStore.hashOf(photo)
+                        .orElseThrow(() -> new IllegalArgumentException("the photo " + photo.getUrl() + " was not uploaded here")))
+                .collect(toList()));
     }
 
     /**
      * @param photo      photo in base64
      * @param preProduct a previous state of a product whose photos belong
-     * @return a {@link Photo} with its url
+     * @return the written photo, not referenced yet
      */
-    private Photo storagePhoto(String photo, PreProduct preProduct) {
-        String photoName = now().toString();
-        String url = String.format(PRODUCTS_BUCKET_URL, preProduct.getUser().getId(), preProduct.getId(), photoName);
+    private StoredPhoto storagePhoto(String photo, PreProduct preProduct) {
+        try (InputStream content = new Base64PhotoStream(photo)) {
+            return photoStore.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not store a photo of product " + preProduct.getId(), e);
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> running, AtomicReference<RuntimeException> failure) {
+        boolean interrupted = false;
+
+        for (Future<?> worker : running) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // the workers are still writing, they must finish before their photos are discarded
+                    interrupted = true;
+                    failure.compareAndSet(null, new IllegalStateException("interrupted while storing photos", e));
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, new IllegalStateException("could not store photos", e.getCause()));
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Decodes a base64 photo while it is read, reporting malformed base64 as an {@link InvalidPhotoException}
+     */
+    private static class Base64PhotoStream extends FilterInputStream {
+
+        private Base64PhotoStream(String photo) {
+            super(Base64.getDecoder().wrap(new ByteArrayInputStream(photo.getBytes(ISO_8859_1))));
+        }
 
-        LOG.info("[PRODUCT] [PHOTO] Uploaded product photo to: {}", url);
+        @Override
+        public int read() {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw new InvalidPhotoException("deve conter imagens em base64 válidas");
+            }
+        }
 
-        return new Photo(url);
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            try {
+                return super.read(bytes, offset, length);
+            } catch (IOException e) {
+                throw new InvalidPhotoException("deve conter imagens em base64 válidas");
+            }
+        }
     }
 }
@@ -0,0 +1,33 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import java.util.List;
+
+/**
+ * The question that was just asked, how many questions its product has now and the existing questions similar to it
+ */
+class NewQuestionResponse {
+
+    private QuestionResponse question;
+
+    private long questionCount;
+
+    private List<QuestionSearchResult> similarQuestions;
+
+    NewQuestionResponse(Question question, long questionCount, List<QuestionSearchResult> similarQuestions) {
+        this.question = QuestionResponse.from(question);
+        this.questionCount = questionCount;
+        this.similarQuestions = similarQuestions;
+    }
+
+    public QuestionResponse getQuestion() {
+        return question;
+    }
+
+    public long getQuestionCount() {
+        return questionCount;
+    }
+
+    public List<QuestionSearchResult> getSimilarQuestions() {
+        return similarQuestions;
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * A file of the {@link PhotoStore}, with how many product photos reference it.
+ * <p>
+ * Rows are inserted and counted with queries of {@link PhotoBlobRepository}, so concurrent uploads of the same
+ * content never overwrite each other's count
+ */
+@Table(name = "photo_blobs")
+@Entity
+class PhotoBlob {
+
+    @Id
+    @Column(name = "photo_hash", length = 64)
+    private String hash;
+
+    @NotNull
+    @Column(name = "photo_size")
+    private Long size;
+
+    @NotNull
+    @Column(name = "reference_count")
+    private Long referenceCount;
+
+    @NotNull
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * @deprecated frameworks eyes only
+     */
+    @Deprecated
+    PhotoBlob() {
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public Long getReferenceCount() {
+        return referenceCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
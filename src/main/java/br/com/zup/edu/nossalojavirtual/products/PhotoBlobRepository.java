@@ -0,0 +1,46 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+interface PhotoBlobRepository extends Repository<PhotoBlob, String> {
+
+    Optional<PhotoBlob> findById(String hash);
+
+    boolean existsById(String hash);
+
+    /**
+     * @throws org.springframework.dao.DataIntegrityViolationException if the blob is already registered
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into photo_blobs (photo_hash, photo_size, reference_count, created_at) values (:hash, :size, 0, :createdAt)",
+            nativeQuery = true)
+    void register(@Param("hash") String hash, @Param("size") long size, @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * @return 0 if the blob is not registered
+     */
+    @Transactional
+    @Modifying
+    @Query("update PhotoBlob b set b.referenceCount = b.referenceCount + 1 where b.hash = :hash")
+    int incrementReferences(@Param("hash") String hash);
+
+    @Query("select b.hash from PhotoBlob b where b.referenceCount = 0 and b.createdAt < :before")
+    List<String> findUnreferencedHashesCreatedBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * @return 1 if the blob was deleted, 0 if it is referenced again
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from PhotoBlob b where b.hash = :hash and b.referenceCount = 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
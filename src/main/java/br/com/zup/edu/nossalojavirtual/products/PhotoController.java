@@ -0,0 +1,221 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpRange;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static javax.servlet.http.HttpServletResponse.*;
+import static org.springframework.http.HttpHeaders.*;
+import static org.springframework.http.MediaType.*;
+
+/**
+ * Serves the photos of the {@link PhotoStore} by their hash.
+ * <p>
+ * A photo never changes, so its hash is a strong ETag and it can be cached forever. Under Tomcat the bytes never pass
+ * through the heap, the container sends the file itself with sendfile, elsewhere they go through
+ * {@link FileChannel#transferTo} in small chunks. Only a single byte range is served, a request for many ranges gets
+ * the whole photo.
+ * <p>
+ * The resized variants of {@link PhotoThumbnails} are served under {@code /photos/{hash}/{size}}, never with sendfile:
+ * an evicted variant may be deleted right after being found, and only the file opened here is sure to still be read.
+ */
+@RestController
+@RequestMapping("/photos/{hash}")
+class PhotoController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_FOREVER = CacheControl.maxAge(365, DAYS).cachePublic().getHeaderValue() + ", immutable";
+
+    private final PhotoStore photoStore;
+    private final PhotoThumbnails photoThumbnails;
+
+    PhotoController(PhotoStore photoStore, PhotoThumbnails photoThumbnails) {
+        this.photoStore = photoStore;
+        this.photoThumbnails = photoThumbnails;
+    }
+
+    @GetMapping
+    void serve(@PathVariable("hash") String hash,
+               HttpServletRequest request,
+               HttpServletResponse response) throws IOException {
+
+        if (!PhotoStore.isHash(hash)) {
+            response.setStatus(SC_NOT_FOUND);
+            return;
+        }
+
+        if (!send(photoStore.pathOf(hash), "\"" + hash + "\"", true, request, response)) {
+            response.setStatus(SC_NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{size}")
+    void serveThumbnail(@PathVariable("hash") String hash,
+                        @PathVariable("size") int size,
+                        HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+
+        if (!PhotoStore.isHash(hash) || !photoThumbnails.isSupported(size)) {
+            response.setStatus(SC_NOT_FOUND);
+            return;
+        }
+
+        try {
+            // a variant evicted between being found and being opened is rendered once more
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Optional<Path> thumbnail = photoThumbnails.thumbnailOf(hash, size);
+                if (thumbnail.isEmpty()) {
+                    break;
+                }
+
+                if (send(thumbnail.get(), "\"" + hash + "-" + size + "\"", false, request, response)) {
+                    return;
+                }
+            }
+            response.setStatus(SC_NOT_FOUND);
+        } catch (RejectedExecutionException | TimeoutException e) {
+            response.setHeader(RETRY_AFTER, "1");
+            response.setStatus(SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * @param sendfile whether the container may open the file again to send it after this method returns
+     * @return false when the file does not exist, nothing is written to the response
+     */
+    private boolean send(Path file, String etag, boolean sendfile,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (FileChannel photo = FileChannel.open(file)) {
+            long size = photo.size();
+
+            response.setHeader(ETAG, etag);
+            response.setHeader(CACHE_CONTROL, CACHE_FOREVER);
+            response.setHeader(ACCEPT_RANGES, "bytes");
+
+            if (matches(request.getHeader(IF_NONE_MATCH), etag)) {
+                response.setStatus(SC_NOT_MODIFIED);
+                return true;
+            }
+
+            long start = 0;
+            long end = size - 1;
+
+            HttpRange range = rangeOf(request, etag);
+            if (range != null) {
+                start = range.getRangeStart(size);
+                end = range.getRangeEnd(size);
+
+                if (start >= size || start > end) {
+                    response.setHeader(CONTENT_RANGE, "bytes */" + size);
+                    response.setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return true;
+                }
+
+                response.setHeader(CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+                response.setStatus(SC_PARTIAL_CONTENT);
+            }
+
+            response.setContentType(contentTypeOf(photo));
+            response.setContentLengthLong(end - start + 1);
+
+            if ("HEAD".equals(request.getMethod()) || size == 0) {
+                return true;
+            }
+
+            if (sendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return true;
+            }
+
+            transfer(photo, start, end - start + 1, Channels.newChannel(response.getOutputStream()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the single range requested, or {@code null} when the whole photo must be sent
+     */
+    private static HttpRange rangeOf(HttpServletRequest request, String etag) {
+        String header = request.getHeader(RANGE);
+        if (header == null) {
+            return null;
+        }
+
+        String ifRange = request.getHeader(IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    /**
+     * reads only the magic number, the stored photos were validated as PNG, JPEG or GIF
+     */
+    private static String contentTypeOf(FileChannel photo) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        photo.read(magic, 0);
+
+        byte[] bytes = magic.array();
+        if (bytes[0] == (byte) 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return IMAGE_PNG_VALUE;
+        }
+        if (bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xD8) {
+            return IMAGE_JPEG_VALUE;
+        }
+        if (bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F') {
+            return IMAGE_GIF_VALUE;
+        }
+        return APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    private static void transfer(FileChannel photo, long position, long count, WritableByteChannel out) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            position += photo.transferTo(position, end - position, out);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.time.LocalDateTime.now;
+import static java.util.stream.Collectors.toList;
+import static org.springframework.transaction.TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
+
+/**
+ * Content addressed storage of product photos: each distinct content is stored once, in a file named by its SHA-256
+ * and sharded in two directory levels ({@code ab/cd/abcd...}), and counted in a {@link PhotoBlob}.
+ * <p>
+ * Photos are streamed through a small buffer into a temporary file while being hashed, so a photo is never held in
+ * memory, and only their image header is read to validate them. Photos are written before the transaction that saves
+ * their product, so the slow part of an upload never holds a transaction, and only referenced inside it with
+ * {@link #retain}: a product that is not saved does not keep its photos. The blob of a new content is registered with
+ * no references when it is written; blobs never referenced, like the ones of a product that was not saved, are
+ * deleted by {@link #collectGarbage}, which skips the hashes pinned by uploads still in progress. References are
+ * never dropped, products have no way to remove their photos.
+ */
+@Component
+class PhotoStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PhotoStore.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+    private static final Set<String> SUPPORTED_FORMATS = Set.of("png", "jpeg", "jpg", "gif");
+
+    private final PhotoBlobRepository blobRepository;
+    private final TransactionTemplate registerTransaction;
+    private final Path directory;
+    private final String baseUrl;
+    private final Duration gcGracePeriod;
+    private final long maxSize;
+    private final int maxDimension;
+    private final Object[] locks = new Object[64];
+    private final Map<String, Integer> pinned = new ConcurrentHashMap<>();
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder storingNanos = new LongAdder();
+
+    PhotoStore(PhotoBlobRepository blobRepository,
+               TransactionTemplate transactionTemplate,
+               @Value("${photos.storage.directory:photos}") Path directory,
+               @Value("${photos.base-url:http://localhost:8080/photos/}") String baseUrl,
+               @Value("${photos.gc.grace-period:PT24H}") Duration gcGracePeriod,
+               @Value("${photos.max-size:10MB}") DataSize maxSize,
+               @Value("${photos.max-dimension:8000}") int maxDimension) {
+        this.blobRepository = blobRepository;
+        this.registerTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.registerTransaction.setPropagationBehavior(PROPAGATION_REQUIRES_NEW);
+        this.directory = directory;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.gcGracePeriod = gcGracePeriod;
+        this.maxSize = maxSize.toBytes();
+        this.maxDimension = maxDimension;
+
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Writes the photo file without referencing it, the photo stays pinned until it is given to {@link #retain} or
+     * {@link #discard}
+     *
+     * @param content the photo bytes, read until its end but not closed
+     * @throws InvalidPhotoException if the content is not a supported image
+     */
+    StoredPhoto write(InputStream content) throws IOException {
+        long start = System.nanoTime();
+        Path temporaryDirectory = Files.createDirectories(directory.resolve(TEMPORARY_DIRECTORY));
+        Path temporary = Files.createTempFile(temporaryDirectory, "upload-", ".tmp");
+
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            ReadableByteChannel in = Channels.newChannel(content);
+            try (FileChannel out = FileChannel.open(temporary, WRITE)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        size += out.write(buffer);
+                    }
+                    buffer.clear();
+
+                    if (size > maxSize) {
+                        throw new InvalidPhotoException(format("deve conter imagens de até %d bytes", maxSize));
+                    }
+                }
+                out.force(false);
+            }
+
+            validate(temporary, size);
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path file = pathOf(hash);
+            synchronized (lockOf(hash)) {
+                pin(hash);
+
+                try {
+                    if (!Files.exists(file)) {
+                        Files.createDirectories(file.getParent());
+                        Files.move(temporary, file, ATOMIC_MOVE);
+                        bytesWritten.add(size);
+                    } else {
+                        Files.delete(temporary);
+                        deduplicated.increment();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    unpin(hash);
+                    throw e;
+                }
+            }
+
+            try {
+                register(hash, size);
+            } catch (RuntimeException e) {
+                unpin(hash);
+                throw e;
+            }
+
+            stored.increment();
+            bytesReceived.add(size);
+            return new StoredPhoto(hash, size, baseUrl + hash);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            storingNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * references a photo returned by {@link #write} in the current transaction, the transaction saving the product
+     * that uses it
+     */
+    void retain(String hash) {
+        try {
+            if (blobRepository.incrementReferences(hash) == 0) {
+                throw new IllegalStateException("the photo " + hash + " was not written by this store");
+            }
+        } finally {
+            unpinAfterTransaction(hash);
+        }
+    }
+
+    /**
+     * references every photo returned by {@link #write}, discarding the ones left when a reference fails
+     */
+    void retainAll(List<String> hashes) {
+        for (int i = 0; i < hashes.size(); i++) {
+            try {
+                retain(hashes.get(i));
+            } catch (RuntimeException e) {
+                hashes.subList(i + 1, hashes.size()).forEach(this::discard);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * gives up a photo returned by {@link #write}, deleting its file when nothing else uses it
+     */
+    void discard(String hash) {
+        synchronized (lockOf(hash)) {
+            unpin(hash);
+
+            if (!isPinned(hash) && blobRepository.deleteIfUnreferenced(hash) == 1) {
+                deleteFile(pathOf(hash));
+            }
+        }
+    }
+
+    /**
+     * @return where the content with this hash is stored, the file may not exist
+     */
+    Path pathOf(String hash) {
+        return directory.resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(hash);
+    }
+
+    /**
+     * @return the hash of a photo url given by this store, empty for photos stored elsewhere
+     */
+    Optional<String> hashOf(Photo photo) {
+        String url = photo.getUrl();
+        if (url == null || !url.startsWith(baseUrl)) {
+            return Optional.empty();
+        }
+
+        String hash = url.substring(baseUrl.length());
+        return isHash(hash) ? Optional.of(hash) : Optional.empty();
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    static boolean isHash(String value) {
+        return value.length() == 64 && value.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+    }
+
+    @Scheduled(cron = "${photos.gc.cron:0 0 4 * * *}")
+    void collectGarbage() {
+        LocalDateTime before = now().minus(gcGracePeriod);
+        int deleted = 0;
+
+        for (String hash : blobRepository.findUnreferencedHashesCreatedBefore(before)) {
+            synchronized (lockOf(hash)) {
+                if (!isPinned(hash) && blobRepository.deleteIfUnreferenced(hash) == 1) {
+                    deleteFile(pathOf(hash));
+                    deleted++;
+                }
+            }
+        }
+
+        int orphans = deleteOrphanFiles(before);
+        if (deleted > 0 || orphans > 0) {
+            LOG.info("[PRODUCT] [PHOTO] Deleted {} unreferenced photo(s) and {} orphan file(s)", deleted, orphans);
+        }
+    }
+
+    /**
+     * deletes the old temporary files and the files whose blob was never committed
+     */
+    private int deleteOrphanFiles(LocalDateTime before) {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        FileTime oldest = FileTime.from(before.atZone(ZoneId.systemDefault()).toInstant());
+        List<Path> candidates;
+        try (Stream<Path> files = Files.walk(directory, 3)) {
+            candidates = files.filter(Files::isRegularFile)
+                    .filter(file -> isOlderThan(file, oldest))
+                    .collect(toList());
+        } catch (IOException e) {
+            LOG.error("[PRODUCT] [PHOTO] Could not look for orphan photo files in {}", directory, e);
+            return 0;
+        }
+
+        int deleted = 0;
+        for (Path file : candidates) {
+            String name = file.getFileName().toString();
+            if (!isHash(name)) {
+                if (file.getParent().getFileName().toString().equals(TEMPORARY_DIRECTORY)) {
+                    deleted += deleteFile(file) ? 1 : 0;
+                }
+                continue;
+            }
+
+            synchronized (lockOf(name)) {
+                if (!isPinned(name) && !blobRepository.existsById(name)) {
+                    deleted += deleteFile(file) ? 1 : 0;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    public long getStoredPhotos() {
+        return stored.sum();
+    }
+
+    public long getDeduplicatedPhotos() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * @return the fraction of stored photos whose content was already stored
+     */
+    public double getDedupeRatio() {
+        long stored = this.stored.sum();
+        return stored == 0 ? 0 : (double) deduplicated.sum() / stored;
+    }
+
+    /**
+     * @return the bytes saved by deduplication
+     */
+    public long getSavedBytes() {
+        return bytesReceived.sum() - bytesWritten.sum();
+    }
+
+    /**
+     * @return the bytes received per second spent storing
+     */
+    public double getThroughputBytesPerSecond() {
+        long nanos = storingNanos.sum();
+        return nanos == 0 ? 0 : bytesReceived.sum() * 1_000_000_000d / nanos;
+    }
+
+    /**
+     * reads only the image header, the photo is never decoded
+     */
+    private void validate(Path photo, long size) throws IOException {
+        if (size == 0) {
+            throw new InvalidPhotoException("não deve conter imagens vazias");
+        }
+
+        try (ImageInputStream image = ImageIO.createImageInputStream(photo.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(image);
+            if (!readers.hasNext()) {
+                throw new InvalidPhotoException("deve conter apenas imagens PNG, JPEG ou GIF");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                if (!SUPPORTED_FORMATS.contains(reader.getFormatName().toLowerCase())) {
+                    throw new InvalidPhotoException("deve conter apenas imagens PNG, JPEG ou GIF");
+                }
+
+                reader.setInput(image, true, true);
+                if (reader.getWidth(0) > maxDimension || reader.getHeight(0) > maxDimension) {
+                    throw new InvalidPhotoException(format("deve conter imagens de até %dx%d pixels", maxDimension, maxDimension));
+                }
+            } catch (IIOException e) {
+                throw new InvalidPhotoException("deve conter apenas imagens PNG, JPEG ou GIF");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * inserts the blob of a new content with no references, in its own transaction so that a concurrent insert of the
+     * same content only fails this statement. Photos are written before any transaction, so this transaction uses
+     * the connection of the request and never waits for a second one
+     */
+    private void register(String hash, long size) {
+        if (blobRepository.existsById(hash)) {
+            return;
+        }
+
+        try {
+            registerTransaction.executeWithoutResult(status -> blobRepository.register(hash, size, now()));
+        } catch (DataIntegrityViolationException e) {
+            // registered meanwhile by a concurrent upload of the same content
+        }
+    }
+
+    /**
+     * keeps the garbage collector away from a hash from its upload until the transaction referencing it ends, must be
+     * called holding {@link #lockOf}
+     */
+    private void pin(String hash) {
+        pinned.merge(hash, 1, Integer::sum);
+    }
+
+    private void unpinAfterTransaction(String hash) {
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    unpin(hash);
+                }
+            });
+        } else {
+            unpin(hash);
+        }
+    }
+
+    private void unpin(String hash) {
+        synchronized (lockOf(hash)) {
+            pinned.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private boolean isPinned(String hash) {
+        return pinned.containsKey(hash);
+    }
+
+    private Object lockOf(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), locks.length)];
+    }
+
+    private static boolean isOlderThan(Path file, FileTime oldest) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(oldest) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean deleteFile(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not delete the photo file " + file, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static java.awt.RenderingHints.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Resized variants of the photos of the {@link PhotoStore}, rendered on first request and kept on disk.
+ * <p>
+ * Rendering runs on a bounded pool and concurrent requests for the same variant wait, at most
+ * {@code photos.thumbnails.render-timeout}, for a single rendering. Large photos are subsampled while decoded, so an
+ * image is never fully decoded just to be shrunk. The cached variants are evicted least recently used first once they
+ * take more than {@code photos.thumbnails.max-cache-size}, their files are deleted out of the cache lock. A variant
+ * being served keeps its bytes readable while deleted, as long as it was opened before, so it is never sent by path.
+ */
+@Component
+class PhotoThumbnails {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PhotoThumbnails.class);
+
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+
+    private final PhotoStore photoStore;
+    private final Path directory;
+    private final SortedSet<Integer> sizes;
+    private final long maxCacheSize;
+    private final long renderTimeoutMillis;
+    private final ExecutorService renderer;
+    private final Map<String, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+
+    /**
+     * cached variants in access order with their size, guarded by {@code this}
+     */
+    private final LinkedHashMap<Path, Long> cached = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    PhotoThumbnails(PhotoStore photoStore,
+                    @Value("${photos.thumbnails.directory:photo-thumbnails}") Path directory,
+                    @Value("${photos.thumbnails.sizes:64,256,1024}") List<Integer> sizes,
+                    @Value("${photos.thumbnails.max-cache-size:1GB}") DataSize maxCacheSize,
+                    @Value("${photos.thumbnails.threads:2}") int threads,
+                    @Value("${photos.thumbnails.queue-capacity:64}") int queueCapacity,
+                    @Value("${photos.thumbnails.render-timeout:PT10S}") Duration renderTimeout) {
+        this.photoStore = photoStore;
+        this.directory = directory;
+        this.sizes = Collections.unmodifiableSortedSet(new TreeSet<>(sizes));
+        this.maxCacheSize = maxCacheSize.toBytes();
+        this.renderTimeoutMillis = renderTimeout.toMillis();
+        this.renderer = new ThreadPoolExecutor(threads, threads, 0, MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("photo-thumbnails-"));
+    }
+
+    boolean isSupported(int size) {
+        return sizes.contains(size);
+    }
+
+    /**
+     * @return the url of each variant of a photo by its size, empty for photos stored elsewhere
+     */
+    Map<Integer, String> urlsOf(Photo photo) {
+        Optional<String> hash = photoStore.hashOf(photo);
+        if (hash.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        sizes.forEach(size -> urls.put(size, photoStore.getBaseUrl() + hash.get() + "/" + size));
+
+        return urls;
+    }
+
+    /**
+     * @param hash a photo of the {@link PhotoStore}
+     * @param size a supported size, the longest side of the variant in pixels
+     * @return the variant file, rendered now when it is not cached, or empty when the photo does not exist
+     * @throws RejectedExecutionException when there are too many variants waiting to be rendered
+     * @throws TimeoutException           when the variant is not rendered in time, it is still cached once rendered
+     */
+    Optional<Path> thumbnailOf(String hash, int size) throws TimeoutException {
+        Path file = fileOf(hash, size);
+        if (touch(file)) {
+            hits.increment();
+            return Optional.of(file);
+        }
+
+        Path original = photoStore.pathOf(hash);
+        if (!Files.exists(original)) {
+            return Optional.empty();
+        }
+
+        String key = hash + "-" + size;
+        CompletableFuture<Path> future = rendering.computeIfAbsent(key,
+                variant -> CompletableFuture.supplyAsync(() -> render(original, file, size), renderer));
+        future.whenComplete((path, e) -> rendering.remove(key, future));
+
+        try {
+            return Optional.ofNullable(future.get(renderTimeoutMillis, MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the thumbnail " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("could not render the thumbnail " + key, e.getCause());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void restore() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory, 3)) {
+            files = walk.filter(Files::isRegularFile).collect(toList());
+        }
+
+        List<Path> variants = new ArrayList<>();
+        for (Path file : files) {
+            if (file.getParent().getFileName().toString().equals(TEMPORARY_DIRECTORY)) {
+                Files.deleteIfExists(file);
+            } else {
+                variants.add(file);
+            }
+        }
+
+        Map<Path, Long> lastModified = new HashMap<>();
+        for (Path variant : variants) {
+            lastModified.put(variant, Files.getLastModifiedTime(variant).toMillis());
+        }
+        variants.sort(comparing(lastModified::get));
+
+        for (Path variant : variants) {
+            add(variant, Files.size(variant));
+        }
+
+        if (!variants.isEmpty()) {
+            LOG.info("[PRODUCT] [PHOTO] Restored {} cached thumbnail(s) taking {} bytes", variants.size(), getCachedBytes());
+        }
+    }
+
+    private Path render(Path original, Path file, int size) {
+        if (touch(file)) {
+            return file;
+        }
+
+        try {
+            BufferedImage source = read(original, size);
+            if (source == null) {
+                return null;
+            }
+
+            double scale = Math.min(1, (double) size / Math.max(source.getWidth(), source.getHeight()));
+            int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+            boolean transparent = source.getColorModel().hasAlpha();
+
+            BufferedImage thumbnail = new BufferedImage(width, height, transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = thumbnail.createGraphics();
+            try {
+                graphics.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(KEY_RENDERING, VALUE_RENDER_QUALITY);
+                graphics.drawImage(source, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            Path temporary = Files.createTempFile(Files.createDirectories(directory.resolve(TEMPORARY_DIRECTORY)), "thumbnail-", ".tmp");
+            try {
+                if (!ImageIO.write(thumbnail, transparent ? "png" : "jpeg", temporary.toFile())) {
+                    throw new IllegalStateException("no image writer for the thumbnail " + file);
+                }
+
+                Files.createDirectories(file.getParent());
+                Files.move(temporary, file, ATOMIC_MOVE, REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+
+            renders.increment();
+            add(file, Files.size(file));
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not render the thumbnail " + file, e);
+        }
+    }
+
+    /**
+     * decodes only every n-th pixel of the photos much larger than the variant, keeping twice the pixels needed for
+     * the final scaling
+     *
+     * @return the decoded photo, or {@code null} when it was deleted meanwhile
+     */
+    private static BufferedImage read(Path original, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalStateException("the photo " + original + " is not an image");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / (size * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private synchronized boolean touch(Path file) {
+        return cached.get(file) != null;
+    }
+
+    /**
+     * caches a variant, then deletes the least recently used ones while the cache is over its size
+     */
+    private void add(Path file, long size) {
+        List<Path> victims = new ArrayList<>();
+
+        synchronized (this) {
+            Long previous = cached.put(file, size);
+            cachedBytes += size - (previous == null ? 0 : previous);
+
+            Iterator<Map.Entry<Path, Long>> eldest = cached.entrySet().iterator();
+            while (cachedBytes > maxCacheSize && eldest.hasNext()) {
+                Map.Entry<Path, Long> entry = eldest.next();
+                if (entry.getKey().equals(file)) {
+                    continue;
+                }
+
+                victims.add(entry.getKey());
+                cachedBytes -= entry.getValue();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        victims.forEach(this::delete);
+    }
+
+    /**
+     * deletes an evicted variant, forgetting it again when it was rendered and cached while being deleted
+     */
+    private void delete(Path victim) {
+        try {
+            Files.deleteIfExists(victim);
+        } catch (IOException e) {
+            LOG.error("[PRODUCT] [PHOTO] Could not delete the thumbnail {}", victim, e);
+        }
+
+        synchronized (this) {
+            Long rendered = cached.get(victim);
+            if (rendered != null && !Files.exists(victim)) {
+                cached.remove(victim);
+                cachedBytes -= rendered;
+            }
+        }
+    }
+
+    private Path fileOf(String hash, int size) {
+        return directory.resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(hash + "-" + size);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getRenders() {
+        return renders.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderer.shutdown();
+    }
+}
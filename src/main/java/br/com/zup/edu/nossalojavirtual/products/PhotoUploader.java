@@ -4,5 +4,15 @@ import java.util.List;
 
 public interface PhotoUploader {
 
+    /**
+     * Uploads the photos of a product, must be called before the transaction that saves the product
+     *
+     * @return the uploaded photos, only kept if given to {@link #keep}
+     */
     List<Photo> upload(List<String> photos, PreProduct preProduct);
+
+    /**
+     * @param photos uploaded photos of a product saved by the current transaction
+     */
+    void keep(List<Photo> photos);
 }
@@ -19,6 +19,7 @@ import static org.springframework.util.Assert.notEmpty;
 
 @Table(name = "products")
 @Entity
+@EntityListeners(UnknownProductIdsListener.class)
 public class Product {
 
     @Id
@@ -99,7 +100,7 @@ public class Product {
         this.name = preProduct.getName();
         this.price = preProduct.getPrice();
         this.stockQuantity = preProduct.getStockQuantity();
-        this.photos = photos;
+        this.photos = new ArrayList<>(photos);
         this.characteristics = characteristics;
         this.description = preProduct.getDescription();
         this.category = preProduct.getCategory();
@@ -175,6 +176,21 @@ public class Product {
         return user;
     }
 
+    /**
+     * @return true if the product is sold by this user
+     */
+    public boolean isSoldBy(User user) {
+        return this.user.equals(user);
+    }
+
+    /**
+     * @param photos stored photos to be shown after the current ones
+     */
+    public void addPhotos(List<Photo> photos) {
+        notEmpty(photos, "photos cannot be empty");
+        this.photos.addAll(photos);
+    }
+
     public BigDecimal rating() {
         double rating = opinions.stream()
                 .collect(averagingDouble(ProductOpinion::getRating));
@@ -1,20 +1,20 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import br.com.zup.edu.nossalojavirtual.categories.Category;
 import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
 import br.com.zup.edu.nossalojavirtual.shared.validators.ObjectIsRegisteredValidator;
+import br.com.zup.edu.nossalojavirtual.shared.validators.RequestEntityMemo;
 import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.CurrentUser;
 import br.com.zup.edu.nossalojavirtual.users.User;
-import br.com.zup.edu.nossalojavirtual.users.UserRepository;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.net.URI;
+import java.util.Optional;
 
 import static org.springframework.http.ResponseEntity.created;
 
@@ -25,25 +25,32 @@ class ProductController {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final PhotoUploader photoUploader;
-    private final UserRepository userRepository;
+    private final RequestEntityMemo entityMemo;
+    private final TransactionTemplate transactionTemplate;
 
     public ProductController(ProductRepository productRepository,
                              CategoryRepository categoryRepository,
-                             PhotoUploader photoUploader, UserRepository userRepository) {
+                             PhotoUploader photoUploader,
+                             RequestEntityMemo entityMemo,
+                             TransactionTemplate transactionTemplate) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.photoUploader = photoUploader;
-        this.userRepository = userRepository;
+        this.entityMemo = entityMemo;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    /**
+     * The photos are uploaded before the transaction, which only keeps them and saves the product
+     */
     @PostMapping
-    ResponseEntity<?> create(@RequestBody @Valid NewProductRequest newProduct, @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<?> create(@RequestBody @Valid NewProductRequest newProduct, @CurrentUser User user) {
 
-        User user = userRepository.findByEmail(jwt.getClaim("email")).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED,"usuario não autenticado"));
-
-        Product product = newProduct.toProduct(photoUploader, categoryRepository::findCategoryById, user);
-        productRepository.save(product);
+        Product product = newProduct.toProduct(photoUploader, this::findCategory, user);
+        transactionTemplate.executeWithoutResult(status -> {
+            photoUploader.keep(product.getPhotos());
+            productRepository.save(product);
+        });
 
         URI location = URI.create("/api/products/" + product.getId());
         return created(location).build();
@@ -56,6 +63,10 @@ class ProductController {
                 new ObjectIsRegisteredValidator<>("categoryId",
                         "category.id.dontExist",
                         NewProductRequest.class,
-                        categoryRepository::existsById));
+                        (Long categoryId) -> findCategory(categoryId).isPresent()));
+    }
+
+    private Optional<Category> findCategory(Long categoryId) {
+        return entityMemo.find(Category.class, categoryId, categoryRepository::findCategoryById);
     }
 }
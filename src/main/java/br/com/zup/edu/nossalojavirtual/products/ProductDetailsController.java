@@ -18,20 +18,26 @@ import static org.springframework.http.ResponseEntity.ok;
 class ProductDetailsController {
 
     private final ProductRepository productRepository;
+    private final UnknownProductIds unknownProductIds;
+    private final PhotoThumbnails photoThumbnails;
 
-    ProductDetailsController(ProductRepository productRepository) {
+    ProductDetailsController(ProductRepository productRepository,
+                             UnknownProductIds unknownProductIds,
+                             PhotoThumbnails photoThumbnails) {
         this.productRepository = productRepository;
+        this.unknownProductIds = unknownProductIds;
+        this.photoThumbnails = photoThumbnails;
     }
 
     @GetMapping
     ResponseEntity<?> get(@PathVariable("id") UUID id, UriComponentsBuilder uriComponentsBuilder) {
-        Optional<Product> possibleProduct = productRepository.findById(id);
+        Optional<Product> possibleProduct = unknownProductIds.find(id, productRepository::findById);
         if (possibleProduct.isEmpty()) {
             return notFound().build();
         }
 
 
-        return ok(new ProductDetailsResponse(possibleProduct.get(), uriComponentsBuilder));
+        return ok(new ProductDetailsResponse(possibleProduct.get(), uriComponentsBuilder, photoThumbnails));
 
     }
 
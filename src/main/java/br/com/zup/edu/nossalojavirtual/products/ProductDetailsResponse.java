@@ -5,6 +5,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -18,6 +19,7 @@ class ProductDetailsResponse {
     private Integer stockQuantity;
     private List<CharacteristicResponse> characteristics;
     private List<String> photos;
+    private List<Map<Integer, String>> photoThumbnails;
     private List<SimpleProductDetailsResponse> sellerOtherProducts;
     private String description;
     private List<String> categoryHierarchy;
@@ -33,7 +35,10 @@ class ProductDetailsResponse {
     private ProductDetailsResponse() {
     }
 
-    ProductDetailsResponse(Product product, UriComponentsBuilder uriBuilder) {
+    /**
+     * @param thumbnails gives the url of each resized variant of the photos
+     */
+    ProductDetailsResponse(Product product, UriComponentsBuilder uriBuilder, PhotoThumbnails thumbnails) {
         this.id = product.getId();
         this.price = product.getPrice();
         this.stockQuantity = product.getStockQuantity();
@@ -54,7 +59,12 @@ class ProductDetailsResponse {
                 .map(Photo::getUrl)
                 .collect(toList());
 
-        this.sellerOtherProducts = makeSellerOtherProductResponse(product.sellerOtherProducts());
+        this.photoThumbnails = product.getPhotos()
+                .stream()
+                .map(thumbnails::urlsOf)
+                .collect(toList());
+
+        this.sellerOtherProducts = makeSellerOtherProductResponse(product.sellerOtherProducts(), thumbnails);
         this.rating = product.rating();
         this.opinions = ProductOpinionResponse.from(product.getOpinions());
 
@@ -63,9 +73,10 @@ class ProductDetailsResponse {
 
     }
 
-    private List<SimpleProductDetailsResponse> makeSellerOtherProductResponse(Set<Product> sellerOtherProducts) {
+    private List<SimpleProductDetailsResponse> makeSellerOtherProductResponse(Set<Product> sellerOtherProducts,
+                                                                              PhotoThumbnails thumbnails) {
         return sellerOtherProducts.stream()
-                .map(SimpleProductDetailsResponse::new)
+                .map(product -> new SimpleProductDetailsResponse(product, thumbnails))
                 .collect(toUnmodifiableList());
     }
 
@@ -95,6 +106,13 @@ class ProductDetailsResponse {
         return photos;
     }
 
+    /**
+     * @return the urls of the resized variants of each photo by their size, empty for photos stored elsewhere
+     */
+    public List<Map<Integer, String>> getPhotoThumbnails() {
+        return photoThumbnails;
+    }
+
     public List<SimpleProductDetailsResponse> getSellerOtherProducts() {
         return sellerOtherProducts;
     }
@@ -130,6 +148,7 @@ class ProductDetailsResponse {
 
         private UUID id;
         private Photo photo;
+        private Map<Integer, String> thumbnails;
         private String name;
         private BigDecimal price;
 
@@ -140,9 +159,10 @@ class ProductDetailsResponse {
         private SimpleProductDetailsResponse() {
         }
 
-        private SimpleProductDetailsResponse(Product product) {
+        private SimpleProductDetailsResponse(Product product, PhotoThumbnails thumbnails) {
             this.id = product.getId();
             this.photo = product.getPhotos().get(0);
+            this.thumbnails = thumbnails.urlsOf(photo);
             this.name = product.getName();
             this.price = product.getPrice();
         }
@@ -155,6 +175,13 @@ class ProductDetailsResponse {
             return photo;
         }
 
+        /**
+         * @return the urls of the resized variants of the photo by their size, so grids don't load it at full size
+         */
+        public Map<Integer, String> getThumbnails() {
+            return thumbnails;
+        }
+
         public String getName() {
             return name;
         }
@@ -1,18 +1,18 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import br.com.zup.edu.nossalojavirtual.shared.ratelimit.RateLimited;
 import br.com.zup.edu.nossalojavirtual.shared.validators.ObjectIsRegisteredValidator;
+import br.com.zup.edu.nossalojavirtual.shared.validators.RequestEntityMemo;
+import br.com.zup.edu.nossalojavirtual.users.CurrentUser;
 import br.com.zup.edu.nossalojavirtual.users.User;
-import br.com.zup.edu.nossalojavirtual.users.UserRepository;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.net.URI;
+import java.util.Optional;
+import java.util.UUID;
 
 import static org.springframework.http.ResponseEntity.created;
 
@@ -22,25 +22,25 @@ class ProductOpinionController {
 
     private final ProductOpinionRepository productOpinionRepository;
     private final ProductRepository productRepository;
-
-    private final UserRepository userRepository;
+    private final RequestEntityMemo entityMemo;
+    private final UnknownProductIds unknownProductIds;
 
     public ProductOpinionController(ProductOpinionRepository productOpinionRepository,
-                                    ProductRepository productRepository, UserRepository userRepository) {
+                                    ProductRepository productRepository,
+                                    RequestEntityMemo entityMemo,
+                                    UnknownProductIds unknownProductIds) {
         this.productOpinionRepository = productOpinionRepository;
         this.productRepository = productRepository;
-        this.userRepository = userRepository;
+        this.entityMemo = entityMemo;
+        this.unknownProductIds = unknownProductIds;
     }
 
     @PostMapping
+    @RateLimited(value = "opinions", product = "productId")
     ResponseEntity<?> create(@RequestBody @Valid NewOpinionRequest newOpinion,
-                             @AuthenticationPrincipal Jwt jwt) {
-
-        User user = userRepository.findByEmail(jwt.getClaim("email")).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED,"usuario não autenticado"));
-
+                             @CurrentUser User user) {
 
-        var opinion = newOpinion.toProductOpinion(productRepository::findById, user);
+        var opinion = newOpinion.toProductOpinion(this::findProduct, user);
         productOpinionRepository.save(opinion);
 
         URI location = URI.create("/api/opinions/" + opinion.getId());
@@ -52,7 +52,11 @@ class ProductOpinionController {
         binder.addValidators(new ObjectIsRegisteredValidator<>("productId",
                 "product.id.dontExist",
                 NewOpinionRequest.class,
-                productRepository::existsById));
+                (UUID productId) -> findProduct(productId).isPresent()));
+    }
+
+    private Optional<Product> findProduct(UUID productId) {
+        return entityMemo.find(Product.class, productId, id -> unknownProductIds.find(id, productRepository::findById));
     }
 
 }
@@ -0,0 +1,107 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.exception.MensagemDeErro;
+import br.com.zup.edu.nossalojavirtual.users.CurrentUser;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
+import static org.springframework.http.ResponseEntity.badRequest;
+import static org.springframework.http.ResponseEntity.notFound;
+import static org.springframework.http.ResponseEntity.ok;
+import static org.springframework.http.ResponseEntity.status;
+
+/**
+ * Adds photos to a product from a multipart body, each {@code photos} part being an image.
+ * <p>
+ * The parts are spooled to disk by the servlet container ({@code spring.servlet.multipart.file-size-threshold=0})
+ * and streamed from there to the {@link PhotoStore}, so the images are never held in memory. The photos are written
+ * before any transaction and only referenced, in a short transaction, when all of them were written
+ */
+@RestController
+@RequestMapping("/api/products/{id}/photos")
+class ProductPhotoController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductPhotoController.class);
+
+    private final ProductRepository productRepository;
+    private final UnknownProductIds unknownProductIds;
+    private final PhotoStore photoStore;
+    private final TransactionTemplate transactionTemplate;
+
+    ProductPhotoController(ProductRepository productRepository,
+                           UnknownProductIds unknownProductIds,
+                           PhotoStore photoStore,
+                           TransactionTemplate transactionTemplate) {
+        this.productRepository = productRepository;
+        this.unknownProductIds = unknownProductIds;
+        this.photoStore = photoStore;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostMapping(consumes = MULTIPART_FORM_DATA_VALUE)
+    ResponseEntity<?> upload(@PathVariable("id") UUID id,
+                                    @RequestParam("photos") List<MultipartFile> photos,
+                                    @CurrentUser User user) throws IOException {
+
+        Optional<Product> possibleProduct = unknownProductIds.find(id, productRepository::findById);
+        if (possibleProduct.isEmpty()) {
+            return notFound().build();
+        }
+
+        Product product = possibleProduct.get();
+        if (!product.isSoldBy(user)) {
+            return status(FORBIDDEN).build();
+        }
+
+        for (MultipartFile photo : photos) {
+            if (photo.isEmpty() || photo.getContentType() == null || !photo.getContentType().startsWith("image/")) {
+                MensagemDeErro mensagemDeErro = new MensagemDeErro();
+                mensagemDeErro.adicionar("photos", "deve conter apenas imagens não vazias");
+                return badRequest().body(mensagemDeErro);
+            }
+        }
+
+        List<StoredPhoto> written = new ArrayList<>(photos.size());
+        try {
+            for (MultipartFile photo : photos) {
+                try (InputStream content = photo.getInputStream()) {
+                    written.add(photoStore.write(content));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            written.forEach(photo -> photoStore.discard(photo.getHash()));
+            throw e;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            photoStore.retainAll(written.stream()
+                    .map(StoredPhoto::getHash)
+                    .collect(toList()));
+
+            product.addPhotos(written.stream()
+                    .map(StoredPhoto::toPhoto)
+                    .collect(toList()));
+        });
+        written.forEach(photo -> LOG.info("[PRODUCT] [PHOTO] Stored photo {} of {} bytes for product {}", photo.getHash(), photo.getSize(), id));
+
+        return ok(product.getPhotos()
+                .stream()
+                .map(Photo::getUrl)
+                .collect(toList()));
+    }
+}
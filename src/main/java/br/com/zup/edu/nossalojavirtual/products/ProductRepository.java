@@ -15,6 +15,8 @@ public interface ProductRepository extends Repository<Product, UUID> {
 
     Optional<Product> findById(UUID uuid);
 
+    Product getReferenceById(UUID id);
+
     List<Product> findByUser(User user);
 
     void deleteProductByName(String string);
@@ -1,14 +1,14 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import br.com.zup.edu.nossalojavirtual.shared.ratelimit.RateLimited;
+import br.com.zup.edu.nossalojavirtual.users.CurrentUser;
 import br.com.zup.edu.nossalojavirtual.users.User;
-import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.http.HttpStatus;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.validation.Valid;
@@ -19,6 +19,7 @@ import java.util.UUID;
 
 import static org.springframework.http.ResponseEntity.created;
 import static org.springframework.http.ResponseEntity.notFound;
+import static org.springframework.http.ResponseEntity.ok;
 
 @RestController
 @RequestMapping("/api/products/{id}/questions")
@@ -27,44 +28,84 @@ class QuestionController {
     private final ProductRepository productRepository;
     private final QuestionRepository questionRepository;
     private final ApplicationEventPublisher publisher;
-
-    private final UserRepository userRepository;
+    private final QuestionCounter questionCounter;
+    private final QuestionIndex questionIndex;
+    private final UnknownProductIds unknownProductIds;
+    private final int maxPageSize;
+    private final int suggestions;
 
     QuestionController(ProductRepository productRepository,
                        QuestionRepository questionRepository,
-                       ApplicationEventPublisher publisher, UserRepository userRepository) {
+                       ApplicationEventPublisher publisher,
+                       QuestionCounter questionCounter,
+                       QuestionIndex questionIndex,
+                       UnknownProductIds unknownProductIds,
+                       @Value("${questions.max-page-size:100}") int maxPageSize,
+                       @Value("${questions.search.suggestions:5}") int suggestions) {
         this.productRepository = productRepository;
         this.questionRepository = questionRepository;
         this.publisher = publisher;
-        this.userRepository = userRepository;
+        this.questionCounter = questionCounter;
+        this.questionIndex = questionIndex;
+        this.unknownProductIds = unknownProductIds;
+        this.maxPageSize = maxPageSize;
+        this.suggestions = suggestions;
     }
 
     @PostMapping
+    @Transactional
+    @RateLimited(value = "questions", product = "id")
     ResponseEntity<?> askQuestion(@PathVariable("id") UUID id, @RequestBody @Valid NewQuestionRequest newQuestion,
-                                  @AuthenticationPrincipal Jwt jwt, UriComponentsBuilder uriBuilder) {
-
-        User user = userRepository.findByEmail(jwt.getClaim("email")).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED,"usuário não autenticado"));
+                                  @CurrentUser User user, UriComponentsBuilder uriBuilder) {
 
-
-        Optional<Product> possibleProduct = productRepository.findById(id);
+        Optional<Product> possibleProduct = unknownProductIds.find(id, productRepository::findById);
 
         if (possibleProduct.isEmpty()) {
             return notFound().build();
         }
 
         Product product = possibleProduct.get();
+        List<QuestionSearchResult> similarQuestions = questionIndex.search(id, newQuestion.getTitle(), suggestions);
+
+        // counted before the question is saved, the count must not include it yet
+        long questionCount = questionCounter.countOf(id) + 1;
+
         var question = newQuestion.toQuestion(user, product);
         questionRepository.save(question);
+        questionCounter.incrementAfterCommit(id);
 
         publisher.publishEvent(new QuestionEvent(question, uriBuilder));
 
         var location = URI.create("/api/products/" + id.toString() + "/questions/" + question.getId());
-        List<Question> questions = questionRepository.findByProduct(possibleProduct.get());
 
-        List<QuestionResponse> response = QuestionResponse.from(questions);
+        return created(location).body(new NewQuestionResponse(question, questionCount, similarQuestions));
+    }
+
+    @GetMapping
+    ResponseEntity<?> listQuestions(@PathVariable("id") UUID id,
+                                    @RequestParam(name = "page", defaultValue = "0") int page,
+                                    @RequestParam(name = "size", defaultValue = "20") int size) {
+
+        if (!unknownProductIds.exists(id, productRepository::existsById)) {
+            return notFound().build();
+        }
+
+        int pageNumber = Math.max(page, 0);
+        int pageSize = Math.min(Math.max(size, 1), maxPageSize);
+        List<Question> questions = questionRepository.findPageByProductId(id, PageRequest.of(pageNumber, pageSize));
+
+        return ok(new QuestionPageResponse(questions, pageNumber, pageSize, questionCounter.countOf(id)));
+    }
+
+    @GetMapping("/search")
+    ResponseEntity<?> searchQuestions(@PathVariable("id") UUID id,
+                                      @RequestParam("q") String query,
+                                      @RequestParam(name = "limit", defaultValue = "10") int limit) {
 
-        return created(location).body(response);
+        if (!unknownProductIds.exists(id, productRepository::existsById)) {
+            return notFound().build();
+        }
 
+        return ok(questionIndex.search(id, query, Math.min(limit, maxPageSize)));
     }
 }
@@ -0,0 +1,123 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.shared.cache.ClockCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
+
+/**
+ * Keeps how many questions each product has, so creating or listing questions does not count them again.
+ * <p>
+ * A product is counted in the database when it is not cached, out of any lock, and its count is kept for
+ * {@code questions.counter.ttl} in a cache of {@code questions.counter.max-size} products. A saved question is
+ * counted once its transaction commits. While a product is being counted a placeholder is cached for it, and a
+ * question of that product counted meanwhile marks it as raced: that count is not cached, it may have missed the
+ * question. Questions of other products do not affect it.
+ */
+@Component
+class QuestionCounter {
+
+    private static final long LOADING = -1;
+    private static final long RACED = -2;
+
+    private final QuestionRepository questionRepository;
+    private final ClockCache<UUID, Count> counts;
+    private final long ttlNanos;
+
+    QuestionCounter(QuestionRepository questionRepository,
+                    @Value("${questions.counter.max-size:10000}") int maxSize,
+                    @Value("${questions.counter.ttl:PT5M}") Duration ttl) {
+        this.questionRepository = questionRepository;
+        this.counts = new ClockCache<>(maxSize);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * counts a question once the current transaction commits, right away when there is none
+     *
+     * @param productId the product of a question that was just saved
+     */
+    void incrementAfterCommit(UUID productId) {
+        if (!isSynchronizationActive()) {
+            increment(productId);
+            return;
+        }
+
+        registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment(productId);
+            }
+        });
+    }
+
+    /**
+     * @return the amount of questions of the product
+     */
+    long countOf(UUID productId) {
+        Count cached = counts.get(productId);
+        if (cached != null && !cached.isExpired()) {
+            return valueOrCount(productId, cached);
+        }
+
+        if (cached != null) {
+            counts.remove(productId, cached);
+        }
+
+        Count loading = new Count(LOADING, System.nanoTime() + ttlNanos);
+        Count raced = counts.putIfAbsent(productId, loading);
+        if (raced != null) {
+            return valueOrCount(productId, raced);
+        }
+
+        long loaded;
+        try {
+            loaded = questionRepository.countByProductId(productId);
+        } catch (RuntimeException e) {
+            counts.remove(productId, loading);
+            throw e;
+        }
+
+        if (!loading.value.compareAndSet(LOADING, loaded)) {
+            counts.remove(productId, loading);
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the cached count, or the count of the database while another request is counting the product
+     */
+    private long valueOrCount(UUID productId, Count count) {
+        long value = count.value.get();
+        return value >= 0 ? value : questionRepository.countByProductId(productId);
+    }
+
+    private void increment(UUID productId) {
+        Count cached = counts.get(productId);
+        if (cached != null) {
+            cached.value.updateAndGet(value -> value >= 0 ? value + 1 : RACED);
+        }
+    }
+
+    private static class Count {
+
+        private final AtomicLong value;
+        private final long expiresAt;
+
+        private Count(long value, long expiresAt) {
+            this.value = new AtomicLong(value);
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return expiresAt - System.nanoTime() <= 0;
+        }
+    }
+}
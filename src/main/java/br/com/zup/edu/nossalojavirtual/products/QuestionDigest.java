@@ -0,0 +1,148 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.shared.email.Email;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailTemplate;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailTemplates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.time.LocalDateTime.now;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Coalesces the questions of each seller asked inside {@code email.question-digest.window} into a single email.
+ * <p>
+ * Pending questions are kept in memory per seller and also stored as {@link QuestionDigestEntry}, so the digests
+ * that were not sent before a crash are rebuilt at startup. The entries of a digest are deleted before it is sent and
+ * stored again if sending fails, so a digest is never sent twice. Only created when
+ * {@code email.question-digest.enabled} is true
+ */
+@Component
+@ConditionalOnProperty(name = "email.question-digest.enabled", havingValue = "true")
+class QuestionDigest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionDigest.class);
+
+    private final QuestionDigestEntryRepository entryRepository;
+    private final ProductRepository productRepository;
+    private final EmailService emailService;
+    private final EmailTemplates emailTemplates;
+    private final Duration window;
+    private final ConcurrentMap<String, SellerDigest> digests = new ConcurrentHashMap<>();
+
+    QuestionDigest(QuestionDigestEntryRepository entryRepository,
+                   ProductRepository productRepository,
+                   EmailService emailService,
+                   EmailTemplates emailTemplates,
+                   @Value("${email.question-digest.window:PT15M}") Duration window) {
+        this.entryRepository = entryRepository;
+        this.productRepository = productRepository;
+        this.emailService = emailService;
+        this.emailTemplates = emailTemplates;
+        this.window = window;
+    }
+
+    /**
+     * @param questionEvent a question to be sent in the next digest of its seller
+     */
+    void add(QuestionEvent questionEvent) {
+        accumulate(entryRepository.save(new QuestionDigestEntry(questionEvent)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void restore() {
+        List<QuestionDigestEntry> pending = entryRepository.findAllByOrderByIdAsc();
+        pending.forEach(this::accumulate);
+
+        if (!pending.isEmpty()) {
+            LOG.info("[PRODUCT] [QUESTION] Restored {} question(s) waiting for a digest", pending.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.question-digest.check-interval:PT10S}")
+    void sendDueDigests() {
+        LocalDateTime now = now();
+
+        for (Map.Entry<String, SellerDigest> digest : digests.entrySet()) {
+            SellerDigest sellerDigest = digest.getValue();
+
+            if (sellerDigest.isDue(now, window) && digests.remove(digest.getKey(), sellerDigest)) {
+                entryRepository.deleteAllByIdInBatch(sellerDigest.entries.stream()
+                        .map(QuestionDigestEntry::getId)
+                        .collect(toList()));
+
+                try {
+                    send(digest.getKey(), sellerDigest.entries);
+                } catch (RuntimeException e) {
+                    LOG.error("[PRODUCT] [QUESTION] Could not send the questions digest to {}", digest.getKey(), e);
+                    sellerDigest.entries.forEach(entry -> accumulate(entryRepository.save(new QuestionDigestEntry(entry))));
+                }
+            }
+        }
+    }
+
+    private void accumulate(QuestionDigestEntry entry) {
+        digests.compute(entry.getSellerEmail(), (seller, digest) -> {
+            SellerDigest sellerDigest = digest == null ? new SellerDigest(entry.getCreatedAt()) : digest;
+            sellerDigest.entries.add(entry);
+
+            return sellerDigest;
+        });
+    }
+
+    private void send(String seller, List<QuestionDigestEntry> entries) {
+        QuestionDigestEntry newest = entries.get(entries.size() - 1);
+        Optional<Product> product = productRepository.findById(newest.getProductId());
+
+        Locale locale = emailTemplates.localeOf(seller);
+        var subject = emailTemplates.get("question-digest.subject", locale).render(entries.size());
+
+        EmailTemplate line = emailTemplates.get("question-digest.line", locale);
+        var body = new StringBuilder();
+        entries.forEach(entry -> line.renderTo(body, entry.getQuestionTitle(), entry.getProductUri()).append('\n'));
+
+        Email email = Email.to(seller)
+                .from(newest.getBuyerEmail())
+                .subject(subject)
+                .body(body.toString())
+                .product(product.orElse(null))
+                .audited()
+                .build();
+
+        emailService.send(email);
+    }
+
+    /**
+     * The questions accumulated for a seller since the first one of the current window
+     */
+    private static class SellerDigest {
+
+        private final LocalDateTime openedAt;
+        private final List<QuestionDigestEntry> entries = new ArrayList<>();
+
+        private SellerDigest(LocalDateTime openedAt) {
+            this.openedAt = openedAt;
+        }
+
+        private boolean isDue(LocalDateTime now, Duration window) {
+            return !openedAt.plus(window).isAfter(now);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static java.time.LocalDateTime.now;
+import static javax.persistence.GenerationType.IDENTITY;
+
+/**
+ * A question waiting to be sent in the next digest email of its seller, see {@link QuestionDigest}
+ */
+@Table(name = "question_digest_entries")
+@Entity
+class QuestionDigestEntry {
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "entry_id")
+    private Long id;
+
+    @NotBlank
+    @Column(name = "entry_seller_email")
+    private String sellerEmail;
+
+    @NotBlank
+    @Column(name = "entry_buyer_email")
+    private String buyerEmail;
+
+    @NotBlank
+    @Column(name = "entry_question_title")
+    private String questionTitle;
+
+    @NotBlank
+    @Column(name = "entry_product_uri")
+    private String productUri;
+
+    @NotNull
+    @Column(name = "entry_product_id", columnDefinition = "binary(16)")
+    private UUID productId;
+
+    @NotNull
+    @Column(name = "entry_created_at")
+    private LocalDateTime createdAt = now();
+
+    /**
+     * @deprecated frameworks eyes only
+     */
+    @Deprecated
+    private QuestionDigestEntry() {
+    }
+
+    QuestionDigestEntry(QuestionEvent questionEvent) {
+        this.sellerEmail = questionEvent.getSellerEmail();
+        this.buyerEmail = questionEvent.getBuyerEmail();
+        this.questionTitle = questionEvent.getTitle();
+        this.productUri = questionEvent.getProductUri();
+        this.productId = questionEvent.getProductId();
+    }
+
+    /**
+     * @param deleted an entry that was deleted and must be stored again as it was
+     */
+    QuestionDigestEntry(QuestionDigestEntry deleted) {
+        this.sellerEmail = deleted.sellerEmail;
+        this.buyerEmail = deleted.buyerEmail;
+        this.questionTitle = deleted.questionTitle;
+        this.productUri = deleted.productUri;
+        this.productId = deleted.productId;
+        this.createdAt = deleted.createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSellerEmail() {
+        return sellerEmail;
+    }
+
+    public String getBuyerEmail() {
+        return buyerEmail;
+    }
+
+    public String getQuestionTitle() {
+        return questionTitle;
+    }
+
+    public String getProductUri() {
+        return productUri;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,16 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.springframework.data.repository.Repository;
+
+import java.util.List;
+
+interface QuestionDigestEntryRepository extends Repository<QuestionDigestEntry, Long> {
+
+    QuestionDigestEntry save(QuestionDigestEntry entry);
+
+    List<QuestionDigestEntry> findAllByOrderByIdAsc();
+
+    void deleteAllByIdInBatch(Iterable<Long> ids);
+
+    void deleteAll();
+}
@@ -1,72 +1,73 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
-import br.com.zup.edu.nossalojavirtual.users.User;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.StringJoiner;
+import java.util.UUID;
 
 /**
- * This class represents an event that is propagated when someone create a {@link Question}
+ * This class represents an event that is propagated when someone create a {@link Question}.
+ * <p>
+ * It is an immutable snapshot taken while the question is saved, without references to entities, so it can be
+ * handled after the transaction commits and outside of the request thread
  */
-class QuestionEvent {
+final class QuestionEvent {
 
-    private final Long id;
+    private final Long questionId;
     private final String title;
-    private final String sellersEmail;
-    private final String possibleBuyer;
+    private final String sellerEmail;
+    private final String buyerEmail;
+    private final UUID productId;
     private final String productUri;
-    private final Product product;
 
     /**
      * @param question   that was created to a specific product
      * @param uriBuilder the url creator
      */
-    public QuestionEvent(Question question, UriComponentsBuilder uriBuilder) {
-        this.id = question.getId();
-        this.title = question.getTitle();
-
+    QuestionEvent(Question question, UriComponentsBuilder uriBuilder) {
         Product product = question.getProduct();
-        this.sellersEmail = product.sellerEmail();
-
-        User user = question.getUser();
-        this.possibleBuyer = user.getUsername();
 
+        this.questionId = question.getId();
+        this.title = question.getTitle();
+        this.sellerEmail = product.sellerEmail();
+        this.buyerEmail = question.getUser().getUsername();
+        this.productId = product.getId();
         this.productUri = uriBuilder.path("/api/products/{id}")
                 .buildAndExpand(product.getId())
                 .toString();
-        this.product = product;
     }
 
-    public Long getId() {
-        return id;
+    public Long getQuestionId() {
+        return questionId;
     }
 
     public String getTitle() {
         return title;
     }
 
-    public String getSellersEmail() {
-        return sellersEmail;
+    public String getSellerEmail() {
+        return sellerEmail;
     }
 
-    public String getPossibleBuyer() {
-        return possibleBuyer;
+    public String getBuyerEmail() {
+        return buyerEmail;
     }
 
-    public String getProductUri() {
-        return productUri;
+    public UUID getProductId() {
+        return productId;
     }
 
-    public Product getProduct() {
-        return product;
+    public String getProductUri() {
+        return productUri;
     }
 
     @Override
     public String toString() {
         return new StringJoiner(", ", QuestionEvent.class.getSimpleName() + "[", "]")
+                .add("questionId=" + questionId)
                 .add("title='" + title + "'")
-                .add("sellersEmail='" + sellersEmail + "'")
-                .add("possibleBuyer='" + possibleBuyer + "'")
+                .add("sellerEmail='" + sellerEmail + "'")
+                .add("buyerEmail='" + buyerEmail + "'")
                 .add("productUri=" + productUri)
                 .toString();
     }
@@ -0,0 +1,117 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Runs the handling of {@link QuestionEvent}s in its own bounded pool, so a slow email sink does not hold the
+ * request that asked the question. When {@code questions.events.async} is false the events are handled in the
+ * calling thread.
+ */
+@Component
+class QuestionEventExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionEventExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    QuestionEventExecutor(@Value("${questions.events.async:true}") boolean async,
+                          @Value("${questions.events.threads:2}") int threads,
+                          @Value("${questions.events.queue-capacity:1000}") int queueCapacity,
+                          @Value("${questions.events.rejection-policy:CALLER_RUNS}") QuestionEventRejectionPolicy rejectionPolicy) {
+
+        this.executor = async ? new ThreadPoolExecutor(threads, threads, 0, SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("question-events-"),
+                rejectionHandler(rejectionPolicy)) : null;
+    }
+
+    void execute(Runnable handler) {
+        submitted.increment();
+
+        if (executor == null) {
+            run(handler);
+            return;
+        }
+
+        executor.execute(() -> run(handler));
+    }
+
+    private void run(Runnable handler) {
+        try {
+            handler.run();
+            completed.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            LOG.error("[PRODUCT] [QUESTION] Could not handle question event", e);
+        }
+    }
+
+    private RejectedExecutionHandler rejectionHandler(QuestionEventRejectionPolicy rejectionPolicy) {
+        return (task, pool) -> {
+            rejected.increment();
+
+            if (rejectionPolicy == QuestionEventRejectionPolicy.CALLER_RUNS && !pool.isShutdown()) {
+                task.run();
+                return;
+            }
+
+            LOG.warn("[PRODUCT] [QUESTION] Question event discarded, {} event(s) waiting", pool.getQueue().size());
+        };
+    }
+
+    public int getQueueDepth() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public int getActiveThreads() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return how many events found the queue full, whatever the rejection policy did with them
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(30, SECONDS)) {
+            LOG.warn("[PRODUCT] [QUESTION] {} question event(s) were not handled before shutdown", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+/**
+ * What {@link QuestionEventExecutor} does with a question event when its queue is full
+ */
+enum QuestionEventRejectionPolicy {
+
+    /**
+     * handles the event in the thread that published it, slowing down the publisher
+     */
+    CALLER_RUNS,
+
+    /**
+     * drops the event, the question is kept but its seller is not notified
+     */
+    DISCARD
+}
@@ -0,0 +1,258 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.shared.cache.ClockCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import static java.util.Comparator.comparingDouble;
+import static org.springframework.transaction.event.TransactionPhase.AFTER_COMMIT;
+
+/**
+ * In memory inverted index over the titles of the questions of each product.
+ * <p>
+ * The index of a product is loaded from the database on its first search, out of any lock, and then kept up to date
+ * by {@link QuestionEvent}s. The index is cached before it is loaded, so the questions of that product indexed during
+ * the load are kept aside and added once the load finishes; searches made meanwhile load an index of their own. Only
+ * the indexes of {@code questions.index.max-size} products are kept. Postings are plain int arrays of
+ * question ordinals and results are ranked by the sum of the inverse document frequency of the matched terms.
+ */
+@Component
+class QuestionIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "o", "as", "os", "um", "uma", "de", "do", "da", "dos", "das", "e", "em", "no", "na", "nos", "nas",
+            "para", "por", "com", "que", "se", "ele", "ela", "isso", "esse", "essa", "ao",
+            "the", "is", "it", "to", "of", "in", "on", "and", "or", "for", "does", "this", "an", "be");
+
+    private final QuestionRepository questionRepository;
+    private final ClockCache<UUID, ProductQuestionIndex> indexes;
+
+    QuestionIndex(QuestionRepository questionRepository,
+                  @Value("${questions.index.max-size:1000}") int maxSize) {
+        this.questionRepository = questionRepository;
+        this.indexes = new ClockCache<>(maxSize);
+    }
+
+    /**
+     * @param productId the product whose questions are searched
+     * @param query     free text, accents and case are ignored
+     * @param limit     max amount of results
+     * @return the best matching questions, the best first
+     */
+    List<QuestionSearchResult> search(UUID productId, String query, int limit) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        return indexOf(productId).search(terms, limit);
+    }
+
+    @TransactionalEventListener(phase = AFTER_COMMIT, fallbackExecution = true)
+    void index(QuestionEvent questionEvent) {
+        ProductQuestionIndex index = indexes.get(questionEvent.getProductId());
+        if (index != null) {
+            index.add(questionEvent.getQuestionId(), questionEvent.getTitle());
+        }
+    }
+
+    private ProductQuestionIndex indexOf(UUID productId) {
+        ProductQuestionIndex cached = indexes.get(productId);
+        if (cached == null) {
+            ProductQuestionIndex loading = new ProductQuestionIndex();
+            cached = indexes.putIfAbsent(productId, loading);
+
+            if (cached == null) {
+                try {
+                    loading.load(questionRepository.findTitlesByProductId(productId));
+                } catch (RuntimeException e) {
+                    indexes.remove(productId, loading);
+                    throw e;
+                }
+                return loading;
+            }
+        }
+
+        if (cached.isLoaded()) {
+            return cached;
+        }
+
+        ProductQuestionIndex own = new ProductQuestionIndex();
+        own.load(questionRepository.findTitlesByProductId(productId));
+        return own;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD)).replaceAll("");
+        for (String term : NON_WORD.split(normalized)) {
+            if (term.length() > 1 && !STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+
+        return terms;
+    }
+
+    /**
+     * The index of the questions of a single product
+     */
+    private static class ProductQuestionIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Postings> postings = new HashMap<>();
+        private long[] questionIds = new long[16];
+        private String[] titles = new String[16];
+        private int size;
+
+        /**
+         * questions indexed while the index is being loaded, null once it is loaded
+         */
+        private Map<Long, String> pending = new LinkedHashMap<>();
+        private volatile boolean loaded;
+
+        private boolean isLoaded() {
+            return loaded;
+        }
+
+        /**
+         * adds the stored questions, then the ones indexed while they were being read
+         */
+        private void load(List<QuestionRepository.QuestionTitle> stored) {
+            lock.writeLock().lock();
+            try {
+                stored.forEach(question -> insert(question.getId(), question.getTitle()));
+                pending.forEach(this::insert);
+
+                pending = null;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void add(Long questionId, String title) {
+            lock.writeLock().lock();
+            try {
+                if (pending != null) {
+                    pending.put(questionId, title);
+                    return;
+                }
+
+                insert(questionId, title);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void insert(Long questionId, String title) {
+            if (contains(questionId)) {
+                return;
+            }
+
+            if (size == questionIds.length) {
+                questionIds = Arrays.copyOf(questionIds, size * 2);
+                titles = Arrays.copyOf(titles, size * 2);
+            }
+
+            int ordinal = size++;
+            questionIds[ordinal] = questionId;
+            titles[ordinal] = title;
+
+            tokenize(title).forEach(term -> postings.computeIfAbsent(term, key -> new Postings()).add(ordinal));
+        }
+
+        /**
+         * questions are mostly added in id order, so only an id not greater than the last one needs a scan
+         */
+        private boolean contains(long questionId) {
+            if (size == 0 || questionId > questionIds[size - 1]) {
+                return false;
+            }
+
+            for (int i = 0; i < size; i++) {
+                if (questionIds[i] == questionId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private List<QuestionSearchResult> search(Set<String> terms, int limit) {
+            lock.readLock().lock();
+            try {
+                // only the matched questions are scored, a search costs the postings of its terms, not the product size
+                Map<Integer, Double> scores = new HashMap<>();
+
+                for (String term : terms) {
+                    Postings termPostings = postings.get(term);
+                    if (termPostings == null) {
+                        continue;
+                    }
+
+                    double idf = Math.log(1 + (double) size / termPostings.size);
+                    for (int i = 0; i < termPostings.size; i++) {
+                        scores.merge(termPostings.ordinals[i], idf, Double::sum);
+                    }
+                }
+
+                PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, comparingDouble((Integer ordinal) -> scores.get(ordinal))
+                        .thenComparing(ordinal -> -questionIds[ordinal]));
+                for (Integer ordinal : scores.keySet()) {
+                    best.add(ordinal);
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+
+                List<QuestionSearchResult> results = new ArrayList<>(best.size());
+                while (!best.isEmpty()) {
+                    int ordinal = best.poll();
+                    results.add(0, new QuestionSearchResult(questionIds[ordinal], titles[ordinal], scores.get(ordinal)));
+                }
+
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Growable list of question ordinals, in insertion order
+     */
+    private static class Postings {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+}
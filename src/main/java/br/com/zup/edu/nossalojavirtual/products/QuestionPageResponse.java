@@ -0,0 +1,40 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import java.util.List;
+
+/**
+ * A page of the questions of a product, the newest first
+ */
+class QuestionPageResponse {
+
+    private List<QuestionResponse> questions;
+
+    private int page;
+
+    private int size;
+
+    private long totalQuestions;
+
+    QuestionPageResponse(List<Question> questions, int page, int size, long totalQuestions) {
+        this.questions = QuestionResponse.from(questions);
+        this.page = page;
+        this.size = size;
+        this.totalQuestions = totalQuestions;
+    }
+
+    public List<QuestionResponse> getQuestions() {
+        return questions;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotalQuestions() {
+        return totalQuestions;
+    }
+}
@@ -1,19 +1,42 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 interface QuestionRepository extends Repository<Question, Long> {
 
     Question save(Question question);
 
-    List<Question> findByProduct(Product product);
+    long countByProductId(UUID productId);
+
+    /**
+     * @return a page of the product questions, the newest first
+     */
+    @Query("select q from Question q join fetch q.user where q.product.id = :productId order by q.createdAt desc, q.id desc")
+    List<Question> findPageByProductId(@Param("productId") UUID productId, Pageable pageable);
+
+    /**
+     * @return the id and title of every question of the product, used to build the {@link QuestionIndex}
+     */
+    @Query("select q.id as id, q.title as title from Question q where q.product.id = :productId order by q.id")
+    List<QuestionTitle> findTitlesByProductId(@Param("productId") UUID productId);
 
     Optional<Question> findById(Long id);
 
     void deleteAll();
 
     List<Question> findAll();
+
+    interface QuestionTitle {
+
+        Long getId();
+
+        String getTitle();
+    }
 }
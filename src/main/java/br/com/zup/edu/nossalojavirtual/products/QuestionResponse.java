@@ -26,6 +26,10 @@ class QuestionResponse {
         this.createdAt = question.getCreatedAt();
     }
 
+    public static QuestionResponse from(Question question) {
+        return new QuestionResponse(question);
+    }
+
     public static List<QuestionResponse> from(List<Question> questions) {
 
         return questions.stream()
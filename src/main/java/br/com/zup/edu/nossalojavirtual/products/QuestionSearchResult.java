@@ -0,0 +1,29 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+/**
+ * A question that matched a search, higher scores match better
+ */
+class QuestionSearchResult {
+
+    private final Long questionId;
+    private final String title;
+    private final double score;
+
+    QuestionSearchResult(Long questionId, String title, double score) {
+        this.questionId = questionId;
+        this.title = title;
+        this.score = score;
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
+
+@RestController
+@RequestMapping("/api/sellers/me/questions/stream")
+class QuestionStreamController {
+
+    private final QuestionStreamHub questionStreamHub;
+
+    QuestionStreamController(QuestionStreamHub questionStreamHub) {
+        this.questionStreamHub = questionStreamHub;
+    }
+
+    @GetMapping(produces = TEXT_EVENT_STREAM_VALUE)
+    SseEmitter stream(@AuthenticationPrincipal Jwt jwt,
+                      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+
+        return questionStreamHub.subscribe(jwt.getClaim("email"), lastEventId);
+    }
+}
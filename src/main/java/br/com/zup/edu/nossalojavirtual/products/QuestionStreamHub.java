@@ -0,0 +1,278 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.springframework.transaction.event.TransactionPhase.AFTER_COMMIT;
+
+/**
+ * Fans out new questions to the sellers connected to {@link QuestionStreamController}.
+ * <p>
+ * Each connection has a bounded buffer drained by a small pool of sender threads, so idle connections hold no
+ * thread, and a connection whose buffer fills up is closed instead of slowing down the others. The last questions of
+ * each seller are kept to be replayed to a client reconnecting with a {@code Last-Event-ID}. A channel without
+ * connections is kept for {@code questions.stream.replay-retention} since it was created or its last connection
+ * closed, to let the client reconnect, or removed right away when there is nothing to replay.
+ */
+@Component
+class QuestionStreamHub {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionStreamHub.class);
+
+    private final ConcurrentMap<String, SellerChannel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+    private final int bufferSize;
+    private final int replaySize;
+    private final Duration timeout;
+    private final long replayRetentionNanos;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder evicted = new LongAdder();
+
+    QuestionStreamHub(@Value("${questions.stream.senders:4}") int senders,
+                      @Value("${questions.stream.buffer-size:32}") int bufferSize,
+                      @Value("${questions.stream.replay-size:100}") int replaySize,
+                      @Value("${questions.stream.timeout:PT30M}") Duration timeout,
+                      @Value("${questions.stream.replay-retention:PT5M}") Duration replayRetention) {
+        this.senders = newFixedThreadPool(senders, new CustomizableThreadFactory("question-stream-"));
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.timeout = timeout;
+        this.replayRetentionNanos = replayRetention.toNanos();
+    }
+
+    /**
+     * @param seller      the email of the connected seller
+     * @param lastEventId the last question received by the client before reconnecting, or null
+     * @return an emitter that receives the seller's new questions
+     */
+    SseEmitter subscribe(String seller, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(seller, new SseEmitter(timeout.toMillis()));
+
+        while (true) {
+            SellerChannel channel = channels.computeIfAbsent(seller, key -> new SellerChannel());
+
+            synchronized (channel) {
+                // removed after being found, a new channel takes its place
+                if (channel.removed) {
+                    continue;
+                }
+
+                channel.subscribers.add(subscriber);
+                if (lastEventId != null) {
+                    channel.recent.stream()
+                            .filter(question -> question.getQuestionId() > lastEventId)
+                            .forEach(subscriber::offer);
+                }
+            }
+            break;
+        }
+        subscribers.incrementAndGet();
+
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+
+        subscriber.scheduleDrain();
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(phase = AFTER_COMMIT, fallbackExecution = true)
+    void publish(QuestionEvent questionEvent) {
+        StreamedQuestion question = new StreamedQuestion(questionEvent);
+
+        while (true) {
+            SellerChannel channel = channels.computeIfAbsent(questionEvent.getSellerEmail(), key -> new SellerChannel());
+
+            synchronized (channel) {
+                if (channel.removed) {
+                    continue;
+                }
+
+                channel.recent.addLast(question);
+                if (channel.recent.size() > replaySize) {
+                    channel.recent.removeFirst();
+                }
+
+                channel.subscribers.forEach(subscriber -> subscriber.offer(question));
+            }
+            return;
+        }
+    }
+
+    /**
+     * keeps idle connections open through proxies, finds the ones that were closed by the client and removes the
+     * channels nobody reconnected to in time
+     */
+    @Scheduled(fixedDelayString = "${questions.stream.heartbeat-interval:PT30S}")
+    void heartbeat() {
+        long now = System.nanoTime();
+
+        channels.forEach((seller, channel) -> {
+            channel.subscribers.forEach(Subscriber::heartbeat);
+
+            synchronized (channel) {
+                if (channel.subscribers.isEmpty() && now - channel.idleSince > replayRetentionNanos) {
+                    remove(seller, channel);
+                }
+            }
+        });
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        SellerChannel channel = channels.get(subscriber.seller);
+        if (channel != null) {
+            synchronized (channel) {
+                if (channel.subscribers.remove(subscriber) && channel.subscribers.isEmpty()) {
+                    channel.idleSince = System.nanoTime();
+                    if (channel.recent.isEmpty()) {
+                        remove(subscriber.seller, channel);
+                    }
+                }
+            }
+        }
+        subscribers.decrementAndGet();
+    }
+
+    /**
+     * must be called holding the channel lock
+     */
+    private void remove(String seller, SellerChannel channel) {
+        channel.removed = true;
+        channels.remove(seller, channel);
+    }
+
+    private void evict(Subscriber subscriber) {
+        evicted.increment();
+        LOG.warn("[PRODUCT] [QUESTION] [STREAM] Closing a slow connection of {}", subscriber.seller);
+
+        unsubscribe(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    /**
+     * @return how many connections were closed because they could not keep up
+     */
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    /**
+     * @return how many sellers have connections or questions kept to be replayed
+     */
+    public int getChannels() {
+        return channels.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    /**
+     * The connections and the last questions of a seller, the fields but {@link #subscribers} are guarded by the
+     * channel itself
+     */
+    private static class SellerChannel {
+
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private final Deque<StreamedQuestion> recent = new ArrayDeque<>();
+        private long idleSince = System.nanoTime();
+        private boolean removed;
+    }
+
+    /**
+     * A seller connection and the events waiting to be written to it
+     */
+    private class Subscriber {
+
+        private final String seller;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEventBuilder> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(String seller, SseEmitter emitter) {
+            this.seller = seller;
+            this.emitter = emitter;
+        }
+
+        private void offer(StreamedQuestion question) {
+            enqueue(SseEmitter.event()
+                    .id(question.getQuestionId().toString())
+                    .name("question")
+                    .data(question));
+        }
+
+        private void heartbeat() {
+            enqueue(SseEmitter.event().comment("heartbeat"));
+        }
+
+        private void enqueue(SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+
+            if (!buffer.offer(event)) {
+                evict(this);
+                return;
+            }
+
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!buffer.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEventBuilder event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+
+            scheduleDrain();
+        }
+    }
+}
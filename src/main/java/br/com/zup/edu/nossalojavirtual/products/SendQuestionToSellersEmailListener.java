@@ -1,38 +1,73 @@
 package br.com.zup.edu.nossalojavirtual.products;
 
 import br.com.zup.edu.nossalojavirtual.shared.email.Email;
-import br.com.zup.edu.nossalojavirtual.shared.email.EmailRepository;
 import br.com.zup.edu.nossalojavirtual.shared.email.EmailService;
-import org.springframework.context.event.EventListener;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailTemplates;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.springframework.transaction.TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+import static org.springframework.transaction.event.TransactionPhase.AFTER_COMMIT;
+
+/**
+ * Notifies the seller about a new question once the question is committed, see {@link QuestionEventExecutor}.
+ * <p>
+ * Each event is handled in its own transaction, the one that saved the question is already finished. When the
+ * {@link QuestionDigest} is enabled the question goes to the seller's next digest instead
+ */
 @Component
 class SendQuestionToSellersEmailListener {
 
+    private final QuestionEventExecutor questionEventExecutor;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
     private final EmailService sendEmail;
-    private final EmailRepository emailRepository;
+    private final Optional<QuestionDigest> questionDigest;
+    private final EmailTemplates emailTemplates;
 
-    SendQuestionToSellersEmailListener(EmailService sendEmail,
-                                       EmailRepository emailRepository) {
+    SendQuestionToSellersEmailListener(QuestionEventExecutor questionEventExecutor,
+                                       ProductRepository productRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       EmailService sendEmail,
+                                       Optional<QuestionDigest> questionDigest,
+                                       EmailTemplates emailTemplates) {
+        this.questionEventExecutor = questionEventExecutor;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(PROPAGATION_REQUIRES_NEW);
         this.sendEmail = sendEmail;
-        this.emailRepository = emailRepository;
+        this.questionDigest = questionDigest;
+        this.emailTemplates = emailTemplates;
     }
 
-    @EventListener
+    @TransactionalEventListener(phase = AFTER_COMMIT, fallbackExecution = true)
     void listen(QuestionEvent questionEvent) {
+        questionEventExecutor.execute(() -> transactionTemplate.executeWithoutResult(status -> handle(questionEvent)));
+    }
+
+    private void handle(QuestionEvent questionEvent) {
+        if (questionDigest.isPresent()) {
+            questionDigest.get().add(questionEvent);
+            return;
+        }
 
-        // TODO: Apply I18N in this messages?
-        var subject = " You have a new question";
-        var body = questionEvent.getTitle() + " in " + questionEvent.getProductUri();
+        Locale locale = emailTemplates.localeOf(questionEvent.getSellerEmail());
+        var subject = emailTemplates.get("question.subject", locale).render();
+        var body = emailTemplates.get("question.body", locale).render(questionEvent.getTitle(), questionEvent.getProductUri());
 
-        Email email = Email.to(questionEvent.getSellersEmail())
-                .from(questionEvent.getPossibleBuyer())
+        Email email = Email.to(questionEvent.getSellerEmail())
+                .from(questionEvent.getBuyerEmail())
                 .subject(subject)
                 .body(body)
-                .product(questionEvent.getProduct())
+                .product(productRepository.getReferenceById(questionEvent.getProductId()))
+                .audited()
                 .build();
 
         sendEmail.send(email);
-        emailRepository.save(email);
     }
 }
@@ -0,0 +1,36 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+/**
+ * A photo written by {@link PhotoStore}
+ */
+class StoredPhoto {
+
+    private final String hash;
+    private final long size;
+    private final String url;
+
+    StoredPhoto(String hash, long size, String url) {
+        this.hash = hash;
+        this.size = size;
+        this.url = url;
+    }
+
+    /**
+     * @return the SHA-256 of the content, in hex
+     */
+    String getHash() {
+        return hash;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    Photo toPhoto() {
+        return new Photo(url);
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import java.util.UUID;
+
+/**
+ * The data of a new question sent to the seller's {@link QuestionStreamController} connections
+ */
+class StreamedQuestion {
+
+    private final Long questionId;
+    private final String title;
+    private final String buyerEmail;
+    private final UUID productId;
+    private final String productUri;
+
+    StreamedQuestion(QuestionEvent questionEvent) {
+        this.questionId = questionEvent.getQuestionId();
+        this.title = questionEvent.getTitle();
+        this.buyerEmail = questionEvent.getBuyerEmail();
+        this.productId = questionEvent.getProductId();
+        this.productUri = questionEvent.getProductUri();
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getBuyerEmail() {
+        return buyerEmail;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public String getProductUri() {
+        return productUri;
+    }
+}
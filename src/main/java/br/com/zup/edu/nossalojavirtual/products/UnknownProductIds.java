@@ -0,0 +1,20 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.shared.validators.NegativeLookupCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Product ids recently looked up and not found, invalidated by {@link UnknownProductIdsListener}
+ */
+@Component
+public class UnknownProductIds extends NegativeLookupCache<UUID> {
+
+    UnknownProductIds(@Value("${products.unknown-ids.max-size:100000}") int maxSize,
+                      @Value("${products.unknown-ids.ttl:PT1M}") Duration ttl) {
+        super(maxSize, ttl);
+    }
+}
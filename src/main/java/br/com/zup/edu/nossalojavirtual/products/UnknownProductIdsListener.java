@@ -0,0 +1,37 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import javax.persistence.PostPersist;
+
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
+
+/**
+ * Entity listener of {@link Product} that removes every new id from {@link UnknownProductIds}, again after the commit
+ * so a lookup that did not see the uncommitted row is forgotten too
+ */
+@Component
+class UnknownProductIdsListener {
+
+    private final UnknownProductIds unknownProductIds;
+
+    UnknownProductIdsListener(UnknownProductIds unknownProductIds) {
+        this.unknownProductIds = unknownProductIds;
+    }
+
+    @PostPersist
+    void invalidate(Product product) {
+        unknownProductIds.invalidate(product.getId());
+
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    unknownProductIds.invalidate(product.getId());
+                }
+            });
+        }
+    }
+}
@@ -1,9 +1,8 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
+import br.com.zup.edu.nossalojavirtual.purchase.PaymentGatewayStatusClient.GatewayPaymentStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
 
@@ -25,4 +24,14 @@ class OuterSystemsMockController {
 
         return ok().build();
     }
+
+    /**
+     * Local stand-in for the gateways status API, it never knows about a payment
+     */
+    @GetMapping("/gateway/{gateway}/purchases/{purchaseId}")
+    ResponseEntity<GatewayPaymentStatus> paymentStatus(@PathVariable("gateway") String gateway,
+                                                       @PathVariable("purchaseId") Long purchaseId) {
+
+        return ok(new GatewayPaymentStatus(null, null));
+    }
 }
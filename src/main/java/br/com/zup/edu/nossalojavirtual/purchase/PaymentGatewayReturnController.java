@@ -1,6 +1,7 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
 import br.com.zup.edu.nossalojavirtual.shared.validators.ObjectIsRegisteredValidator;
+import br.com.zup.edu.nossalojavirtual.shared.validators.RequestEntityMemo;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.WebDataBinder;
@@ -9,6 +10,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.springframework.http.ResponseEntity.ok;
@@ -20,11 +22,17 @@ class PaymentGatewayReturnController {
 
     private final PurchaseRepository purchaseRepository;
     private final Set<PostPurchaseAction> postPurchaseActions;
+    private final RequestEntityMemo entityMemo;
+    private final UnknownPurchaseIds unknownPurchaseIds;
 
     PaymentGatewayReturnController(PurchaseRepository purchaseRepository,
-                                   Set<PostPurchaseAction> postPurchaseActions) {
+                                   Set<PostPurchaseAction> postPurchaseActions,
+                                   RequestEntityMemo entityMemo,
+                                   UnknownPurchaseIds unknownPurchaseIds) {
         this.purchaseRepository = purchaseRepository;
         this.postPurchaseActions = postPurchaseActions;
+        this.entityMemo = entityMemo;
+        this.unknownPurchaseIds = unknownPurchaseIds;
     }
 
     @PostMapping
@@ -32,7 +40,7 @@ class PaymentGatewayReturnController {
     public ResponseEntity<?> confirmPayment(@RequestBody @Valid PaymentReturn paymentReturn,
                                             UriComponentsBuilder uriBuilder) throws BindException {
 
-        var purchase = purchaseRepository.findById(paymentReturn.getPurchaseId()).get();
+        var purchase = findPurchase(paymentReturn.getPurchaseId()).get();
 
         PostPaymentProcessedPurchase postPaymentPurchase = purchase.process(paymentReturn);
 
@@ -47,6 +55,10 @@ class PaymentGatewayReturnController {
                 new ObjectIsRegisteredValidator<>("purchaseId",
                         "purchase.id.dontExist",
                         PaymentReturn.class,
-                        purchaseRepository::existsById));
+                        (Long purchaseId) -> findPurchase(purchaseId).isPresent()));
+    }
+
+    private Optional<Purchase> findPurchase(Long purchaseId) {
+        return entityMemo.find(Purchase.class, purchaseId, id -> unknownPurchaseIds.find(id, purchaseRepository::findById));
     }
 }
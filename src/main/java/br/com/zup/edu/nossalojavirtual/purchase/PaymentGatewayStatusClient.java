@@ -0,0 +1,47 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+@FeignClient(url = "localhost:8080/gateway", name = "paymentGatewayStatus")
+interface PaymentGatewayStatusClient {
+
+    @RequestMapping(method = GET, value = "/{gateway}/purchases/{purchaseId}", produces = "application/json")
+    GatewayPaymentStatus statusOf(@PathVariable("gateway") String gateway, @PathVariable("purchaseId") Long purchaseId);
+
+    /**
+     * The payment known by the gateway for a purchase, both fields are null while the buyer has not paid
+     */
+    class GatewayPaymentStatus {
+
+        private String paymentId;
+        private String status;
+
+        /**
+         * @deprecated frameworks eyes only
+         */
+        @Deprecated
+        GatewayPaymentStatus() {
+        }
+
+        public GatewayPaymentStatus(String paymentId, String status) {
+            this.paymentId = paymentId;
+            this.status = status;
+        }
+
+        public String getPaymentId() {
+            return paymentId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public boolean isReturned() {
+            return paymentId != null && status != null;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.purchase.PaymentGatewayStatusClient.GatewayPaymentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Reconciles purchases whose gateway callback never arrived, asking the gateway for their payment status.
+ * <p>
+ * The pending purchases are split by id range and the ranges are processed in parallel, each one keeping a
+ * {@link ReconciliationCheckpoint} so an interrupted run continues where it stopped.
+ * <p>
+ * Only purchases older than {@code purchase.reconciliation.grace-period} are reconciled, younger ones may still get
+ * their callback. Purchases older than {@code purchase.reconciliation.max-age} are given up, so the ones never paid
+ * are not asked to the gateway forever. The checkpoints of a finished pass are deleted before the next one starts. The gateway is asked outside any transaction, each paid purchase is then processed in its own
+ * transaction, skipped when the callback processed it meanwhile, and its {@link PostPurchaseAction}s run after commit.
+ */
+@Component
+@ConditionalOnProperty(name = "purchase.reconciliation.enabled", havingValue = "true")
+class PendingPurchasesReconciliation {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PendingPurchasesReconciliation.class);
+
+    private final PurchaseRepository purchaseRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
+    private final PaymentGatewayStatusClient gatewayStatusClient;
+    private final Set<PostPurchaseAction> postPurchaseActions;
+    private final TransactionTemplate transactionTemplate;
+    private final int partitions;
+    private final int batchSize;
+    private final Duration gracePeriod;
+    private final Duration maxAge;
+    private final String baseUrl;
+    private final ExecutorService executor;
+
+    PendingPurchasesReconciliation(PurchaseRepository purchaseRepository,
+                                   ReconciliationCheckpointRepository checkpointRepository,
+                                   PaymentGatewayStatusClient gatewayStatusClient,
+                                   Set<PostPurchaseAction> postPurchaseActions,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${purchase.reconciliation.partitions:8}") int partitions,
+                                   @Value("${purchase.reconciliation.batch-size:500}") int batchSize,
+                                   @Value("${purchase.reconciliation.grace-period:PT30M}") Duration gracePeriod,
+                                   @Value("${purchase.reconciliation.max-age:P3D}") Duration maxAge,
+                                   @Value("${purchase.reconciliation.base-url:http://localhost:8080}") String baseUrl) {
+
+        if (partitions < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("partitions and batch-size must be greater than 0");
+        }
+
+        if (maxAge.compareTo(gracePeriod) < 0) {
+            throw new IllegalArgumentException("max-age must not be less than grace-period");
+        }
+
+        this.purchaseRepository = purchaseRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.gatewayStatusClient = gatewayStatusClient;
+        this.postPurchaseActions = postPurchaseActions;
+        this.transactionTemplate = transactionTemplate;
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+        this.gracePeriod = gracePeriod;
+        this.maxAge = maxAge;
+        this.baseUrl = baseUrl;
+        this.executor = newFixedThreadPool(partitions);
+    }
+
+    @Scheduled(initialDelayString = "${purchase.reconciliation.initial-delay:PT5M}",
+            fixedDelayString = "${purchase.reconciliation.interval:PT15M}")
+    void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime createdAfter = now.minus(maxAge);
+        LocalDateTime createdBefore = now.minus(gracePeriod);
+
+        List<ReconciliationCheckpoint> checkpoints = checkpointRepository.findByFinishedFalse();
+        if (checkpoints.isEmpty()) {
+            checkpointRepository.deleteByFinishedTrue();
+            checkpoints = createPartitions(createdAfter, createdBefore);
+        }
+
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+
+        LOG.info("[PURCHASE] [RECONCILIATION] Reconciling pending purchases in {} partition(s)", checkpoints.size());
+
+        List<Callable<Integer>> tasks = checkpoints.stream()
+                .map(checkpoint -> (Callable<Integer>) () -> reconcilePartition(checkpoint, createdAfter, createdBefore))
+                .collect(toList());
+
+        int reconciled = 0;
+        try {
+            for (Future<Integer> partition : executor.invokeAll(tasks)) {
+                reconciled += partition.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error("[PURCHASE] [RECONCILIATION] A partition failed and will be resumed in the next run", e.getCause());
+        }
+
+        LOG.info("[PURCHASE] [RECONCILIATION] {} purchase(s) received their gateway payment", reconciled);
+    }
+
+    /**
+     * splits the pending purchases id range in up to {@link #partitions} checkpoints
+     */
+    private List<ReconciliationCheckpoint> createPartitions(LocalDateTime createdAfter, LocalDateTime createdBefore) {
+        Long lowestId = purchaseRepository.findLowestIdWithoutPaymentAttempts(Status.INICIADA, createdAfter, createdBefore);
+        Long highestId = purchaseRepository.findHighestIdWithoutPaymentAttempts(Status.INICIADA, createdAfter, createdBefore);
+        if (lowestId == null || highestId == null) {
+            return List.of();
+        }
+
+        long partitionSize = Math.max(1, (highestId - lowestId + partitions) / partitions);
+        List<ReconciliationCheckpoint> checkpoints = new ArrayList<>();
+
+        for (long start = lowestId; start <= highestId; start += partitionSize) {
+            long end = Math.min(highestId, start + partitionSize - 1);
+            checkpoints.add(checkpointRepository.save(new ReconciliationCheckpoint(start, end)));
+        }
+
+        return checkpoints;
+    }
+
+    /**
+     * @return how many purchases of this partition had a payment returned by the gateway
+     */
+    private int reconcilePartition(ReconciliationCheckpoint checkpoint, LocalDateTime createdAfter, LocalDateTime createdBefore) {
+        int reconciled = 0;
+
+        while (!checkpoint.isFinished()) {
+            List<Purchase> purchases = purchaseRepository.findWithoutPaymentAttemptsBetween(Status.INICIADA,
+                    checkpoint.getLastProcessedId(),
+                    checkpoint.getRangeEnd(),
+                    createdAfter,
+                    createdBefore,
+                    PageRequest.of(0, batchSize));
+
+            for (Purchase purchase : purchases) {
+                if (reconcilePurchase(purchase)) {
+                    reconciled++;
+                }
+                checkpoint.advanceTo(purchase.getId());
+            }
+
+            if (purchases.size() < batchSize) {
+                checkpoint.finish();
+            }
+
+            checkpointRepository.save(checkpoint);
+        }
+
+        return reconciled;
+    }
+
+    /**
+     * @return true if the gateway returned a payment for this purchase
+     */
+    private boolean reconcilePurchase(Purchase purchase) {
+        try {
+            String gateway = purchase.getPaymentGateway().name().toLowerCase();
+            GatewayPaymentStatus gatewayStatus = gatewayStatusClient.statusOf(gateway, purchase.getId());
+            if (gatewayStatus == null || !gatewayStatus.isReturned()) {
+                return false;
+            }
+
+            var paymentReturn = new PaymentReturn(purchase.getId(), gatewayStatus.getPaymentId(), gatewayStatus.getStatus());
+            PostPaymentProcessedPurchase postPaymentPurchase = transactionTemplate.execute(status -> process(paymentReturn));
+            if (postPaymentPurchase == null) {
+                return false;
+            }
+
+            postPurchaseActions.forEach(action -> action.execute(postPaymentPurchase, UriComponentsBuilder.fromHttpUrl(baseUrl)));
+            return true;
+        } catch (OptimisticLockingFailureException e) {
+            LOG.info("[PURCHASE] [RECONCILIATION] Purchase {} was paid by its callback meanwhile", purchase.getId());
+            return false;
+        } catch (RuntimeException e) {
+            LOG.warn("[PURCHASE] [RECONCILIATION] Could not reconcile purchase {}: {}", purchase.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the processed purchase, or {@code null} when its callback already processed it
+     */
+    private PostPaymentProcessedPurchase process(PaymentReturn paymentReturn) {
+        Purchase purchase = purchaseRepository.findById(paymentReturn.getPurchaseId())
+                .orElseThrow(() -> new IllegalStateException("purchase " + paymentReturn.getPurchaseId() + " no longer exists"));
+
+        if (purchase.hasPaymentAttempts()) {
+            return null;
+        }
+
+        return purchase.process(paymentReturn);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
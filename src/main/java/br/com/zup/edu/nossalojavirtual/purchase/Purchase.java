@@ -19,6 +19,7 @@ import static org.springframework.util.Assert.notNull;
 
 @Table(name = "purchase")
 @Entity
+@EntityListeners(UnknownPurchaseIdsListener.class)
 public
 class Purchase {
 
@@ -55,6 +56,16 @@ class Purchase {
             joinColumns = @JoinColumn(name = "purchase_id"))
     private Set<Payment> paymentAttempts = new HashSet<>();
 
+    @Column(name = "purchase_created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /**
+     * a payment added by the gateway callback and by {@link PendingPurchasesReconciliation} at once fails one of them
+     */
+    @Version
+    @Column(name = "purchase_version")
+    private Long version;
+
 
     /**
      * @deprecated hibernate eyes only
@@ -91,6 +102,10 @@ class Purchase {
         return quantity;
     }
 
+    PaymentGateway getPaymentGateway() {
+        return paymentGateway;
+    }
+
     public String paymentUrl(@URL String redirectUrl) {
         return paymentGateway.paymentUrl(this, redirectUrl);
     }
@@ -106,6 +121,10 @@ class Purchase {
         return new PostPaymentProcessedPurchase(this);
     }
 
+    boolean hasPaymentAttempts() {
+        return !paymentAttempts.isEmpty();
+    }
+
     public boolean isPaymentSuccessful() {
         return paymentAttempts.stream().anyMatch(Payment::isSuccessful);
     }
@@ -0,0 +1,74 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Front door for {@link PurchaseController#buy}: keeps a per-product token bucket sized to the last known stock,
+ * so requests for a sold out product are rejected without touching the database.
+ * <p>
+ * The bucket is only an optimistic ceiling, every admitted request is still checked by
+ * {@link br.com.zup.edu.nossalojavirtual.products.Product#reserveQuantityFor}
+ */
+@Component
+class PurchaseAdmission {
+
+    private final ConcurrentMap<UUID, AtomicInteger> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param productId the product being bought
+     * @param quantity  the amount of items requested
+     * @return false if the known stock cannot serve this quantity, true otherwise (unknown products are always admitted)
+     */
+    boolean tryAdmit(UUID productId, int quantity) {
+        AtomicInteger tokens = buckets.get(productId);
+        if (tokens == null) {
+            return true;
+        }
+
+        int available;
+        do {
+            available = tokens.get();
+            if (available < quantity) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(available, available - quantity));
+
+        return true;
+    }
+
+    /**
+     * gives back the tokens of an admitted request whose reservation was not committed
+     */
+    void release(UUID productId, int quantity) {
+        AtomicInteger tokens = buckets.get(productId);
+        if (tokens != null) {
+            tokens.addAndGet(quantity);
+        }
+    }
+
+    /**
+     * @param productId      the product whose reservation was committed
+     * @param remainingStock the authoritative stock seen by the reservation
+     */
+    void reconcile(UUID productId, int remainingStock) {
+        buckets.computeIfAbsent(productId, id -> new AtomicInteger())
+                .set(Math.max(remainingStock, 0));
+    }
+
+    /**
+     * @return true only if the product is known and its last reconciled stock is zero
+     */
+    boolean isSoldOut(UUID productId) {
+        if (productId == null) {
+            return false;
+        }
+
+        AtomicInteger tokens = buckets.get(productId);
+        return tokens != null && tokens.get() <= 0;
+    }
+}
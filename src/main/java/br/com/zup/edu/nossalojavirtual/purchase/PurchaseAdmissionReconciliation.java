@@ -0,0 +1,39 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.util.UUID;
+
+/**
+ * Settles the tokens taken by an admitted purchase once its transaction finishes
+ */
+class PurchaseAdmissionReconciliation implements TransactionSynchronization {
+
+    private final PurchaseAdmission admission;
+    private final UUID productId;
+    private final int quantity;
+    private Integer observedStock;
+
+    PurchaseAdmissionReconciliation(PurchaseAdmission admission, UUID productId, int quantity) {
+        this.admission = admission;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    /**
+     * @param stockQuantity the product stock after the reservation attempt
+     */
+    void observedStock(int stockQuantity) {
+        this.observedStock = stockQuantity;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        if (status == STATUS_COMMITTED && observedStock != null) {
+            admission.reconcile(productId, observedStock);
+            return;
+        }
+
+        admission.release(productId, quantity);
+    }
+}
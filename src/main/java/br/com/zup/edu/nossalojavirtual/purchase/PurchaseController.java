@@ -1,25 +1,26 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
+import br.com.zup.edu.nossalojavirtual.products.Product;
 import br.com.zup.edu.nossalojavirtual.products.ProductRepository;
+import br.com.zup.edu.nossalojavirtual.products.UnknownProductIds;
 import br.com.zup.edu.nossalojavirtual.shared.validators.ObjectIsRegisteredValidator;
+import br.com.zup.edu.nossalojavirtual.shared.validators.RequestEntityMemo;
+import br.com.zup.edu.nossalojavirtual.users.CurrentUser;
 import br.com.zup.edu.nossalojavirtual.users.User;
-import br.com.zup.edu.nossalojavirtual.users.UserRepository;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.springframework.http.ResponseEntity.ok;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
 
 @RestController
 @RequestMapping("/api/purchase")
@@ -28,33 +29,43 @@ class PurchaseController {
     private final ProductRepository productRepository;
     private final PurchaseRepository purchaseRepository;
 
-    private final UserRepository userRepository;
+    private final PurchaseAdmission purchaseAdmission;
+    private final RequestEntityMemo entityMemo;
+    private final UnknownProductIds unknownProductIds;
 
     PurchaseController(ProductRepository productRepository,
-                       PurchaseRepository purchaseRepository, UserRepository userRepository) {
+                       PurchaseRepository purchaseRepository,
+                       PurchaseAdmission purchaseAdmission,
+                       RequestEntityMemo entityMemo,
+                       UnknownProductIds unknownProductIds) {
         this.productRepository = productRepository;
         this.purchaseRepository = purchaseRepository;
-        this.userRepository = userRepository;
+        this.purchaseAdmission = purchaseAdmission;
+        this.entityMemo = entityMemo;
+        this.unknownProductIds = unknownProductIds;
     }
 
     @PostMapping
     @Transactional
     public ResponseEntity<?> buy(@RequestBody @Valid NewPurchaseRequest newPurchase,
-                                 @AuthenticationPrincipal Jwt jwt,
+                                 @CurrentUser User buyer,
                                  UriComponentsBuilder uriBuilder) throws BindException {
 
-        User buyer = userRepository.findByEmail(jwt.getClaim("email")).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED, "usuario não autenticao"));
+        UUID productId = newPurchase.getProductId();
+        if (!purchaseAdmission.tryAdmit(productId, newPurchase.getQuantity())) {
+            throw outOfStock();
+        }
+
+        var admissionReconciliation = new PurchaseAdmissionReconciliation(purchaseAdmission, productId, newPurchase.getQuantity());
+        registerSynchronization(admissionReconciliation);
 
-        var product = productRepository.findById(newPurchase.getProductId()).get();
+        var product = findProduct(productId).get();
 
         Optional<Purchase> possiblePurchase = product.reserveQuantityFor(newPurchase, buyer);
+        admissionReconciliation.observedStock(product.getStockQuantity());
 
         if (possiblePurchase.isEmpty()) {
-            BindException bindException = new BindException(new Object(), "");
-            bindException.reject("purchase.product.outOfStock", "This product is out of stock");
-
-            throw bindException;
+            throw outOfStock();
         }
 
         Purchase purchase = possiblePurchase.get();
@@ -73,6 +84,13 @@ class PurchaseController {
         return ok(response);
     }
 
+    private BindException outOfStock() {
+        BindException bindException = new BindException(new Object(), "");
+        bindException.reject("purchase.product.outOfStock", "This product is out of stock");
+
+        return bindException;
+    }
+
     @InitBinder(value = {"newPurchaseRequest"})
     void initBinder(WebDataBinder binder) {
 
@@ -80,6 +98,10 @@ class PurchaseController {
                 new ObjectIsRegisteredValidator<>("productId",
                         "product.id.dontExist",
                         NewPurchaseRequest.class,
-                        productRepository::existsById));
+                        (UUID productId) -> purchaseAdmission.isSoldOut(productId) || findProduct(productId).isPresent()));
+    }
+
+    private Optional<Product> findProduct(UUID productId) {
+        return entityMemo.find(Product.class, productId, id -> unknownProductIds.find(id, productRepository::findById));
     }
 }
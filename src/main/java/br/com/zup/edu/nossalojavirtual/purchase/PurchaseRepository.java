@@ -1,7 +1,11 @@
 package br.com.zup.edu.nossalojavirtual.purchase;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +20,33 @@ interface PurchaseRepository extends Repository<Purchase, Long> {
     void deleteAll();
 
     List<Purchase> findAll();
+
+    @Query("select min(p.id) from Purchase p where p.status = :status and p.paymentAttempts is empty " +
+            "and p.createdAt >= :createdAfter and p.createdAt < :createdBefore")
+    Long findLowestIdWithoutPaymentAttempts(@Param("status") Status status,
+                                            @Param("createdAfter") LocalDateTime createdAfter,
+                                            @Param("createdBefore") LocalDateTime createdBefore);
+
+    @Query("select max(p.id) from Purchase p where p.status = :status and p.paymentAttempts is empty " +
+            "and p.createdAt >= :createdAfter and p.createdAt < :createdBefore")
+    Long findHighestIdWithoutPaymentAttempts(@Param("status") Status status,
+                                             @Param("createdAfter") LocalDateTime createdAfter,
+                                             @Param("createdBefore") LocalDateTime createdBefore);
+
+    /**
+     * @param afterId       the id right before the range (exclusive)
+     * @param untilId       the last id of the range (inclusive)
+     * @param createdAfter  purchases created before then are given up
+     * @param createdBefore purchases created since then are skipped, their callback may still arrive
+     * @return purchases in the range without any payment attempt, ordered by id
+     */
+    @Query("select p from Purchase p where p.status = :status and p.paymentAttempts is empty " +
+            "and p.id > :afterId and p.id <= :untilId " +
+            "and p.createdAt >= :createdAfter and p.createdAt < :createdBefore order by p.id")
+    List<Purchase> findWithoutPaymentAttemptsBetween(@Param("status") Status status,
+                                                     @Param("afterId") Long afterId,
+                                                     @Param("untilId") Long untilId,
+                                                     @Param("createdAfter") LocalDateTime createdAfter,
+                                                     @Param("createdBefore") LocalDateTime createdBefore,
+                                                     Pageable pageable);
 }
@@ -0,0 +1,77 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import javax.persistence.*;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+/**
+ * Progress of one id range of the pending purchases reconciliation, so an interrupted run can be resumed
+ */
+@Table(name = "purchase_reconciliation_checkpoints")
+@Entity
+class ReconciliationCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "checkpoint_id")
+    private Long id;
+
+    /**
+     * the last purchase id already reconciled, the partition starts right after it
+     */
+    @Column(name = "checkpoint_last_processed_id")
+    private Long lastProcessedId;
+
+    /**
+     * the last purchase id (inclusive) of this partition
+     */
+    @Column(name = "checkpoint_range_end")
+    private Long rangeEnd;
+
+    @Column(name = "checkpoint_finished")
+    private boolean finished;
+
+    /**
+     * @deprecated hibernate eyes only
+     */
+    @Deprecated
+    private ReconciliationCheckpoint() {
+    }
+
+    /**
+     * @param rangeStart the first purchase id of the partition
+     * @param rangeEnd   the last purchase id of the partition
+     */
+    ReconciliationCheckpoint(long rangeStart, long rangeEnd) {
+        if (rangeEnd < rangeStart) {
+            throw new IllegalArgumentException("rangeEnd must not be less than rangeStart");
+        }
+
+        this.lastProcessedId = rangeStart - 1;
+        this.rangeEnd = rangeEnd;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getLastProcessedId() {
+        return lastProcessedId;
+    }
+
+    public Long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    void advanceTo(Long purchaseId) {
+        this.lastProcessedId = purchaseId;
+    }
+
+    void finish() {
+        this.finished = true;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+interface ReconciliationCheckpointRepository extends Repository<ReconciliationCheckpoint, Long> {
+
+    ReconciliationCheckpoint save(ReconciliationCheckpoint checkpoint);
+
+    List<ReconciliationCheckpoint> findByFinishedFalse();
+
+    long count();
+
+    /**
+     * removes the checkpoints of the last finished pass before a new one is partitioned
+     */
+    @Transactional
+    void deleteByFinishedTrue();
+
+    void deleteAll();
+}
@@ -3,18 +3,21 @@ package br.com.zup.edu.nossalojavirtual.purchase;
 import br.com.zup.edu.nossalojavirtual.products.Product;
 import br.com.zup.edu.nossalojavirtual.shared.email.Email;
 import br.com.zup.edu.nossalojavirtual.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailTemplates;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 
 @Component
 class SendPurchaseEmailConfirmation implements PostPurchaseAction {
 
     private final EmailService emailService;
+    private final EmailTemplates emailTemplates;
 
-    SendPurchaseEmailConfirmation(EmailService emailService) {
+    SendPurchaseEmailConfirmation(EmailService emailService, EmailTemplates emailTemplates) {
         this.emailService = emailService;
+        this.emailTemplates = emailTemplates;
     }
 
     /**
@@ -23,22 +26,22 @@ class SendPurchaseEmailConfirmation implements PostPurchaseAction {
      * @param postPaymentPurchase a success post payment purchase
      * @param uriBuilder          build uri component
      */
-    //TODO: Apply i18n in messages
     @Override
     public void execute(PostPaymentProcessedPurchase postPaymentPurchase, UriComponentsBuilder uriBuilder) {
         if (!postPaymentPurchase.isPaymentSuccessful()) {
             return;
         }
 
-        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd/MM/yyy hh:mm:ss");
         Product product = postPaymentPurchase.getProduct();
+        Locale locale = emailTemplates.localeOf(postPaymentPurchase.buyerEmail());
 
-        String body = "Your " + postPaymentPurchase.getQuantity() + " product(s): " + product.getName() +
-                " is being prepared! Your purchase was confirmed at " + dateFormat.format(postPaymentPurchase.paymentConfirmedTime());
+        String confirmedAt = emailTemplates.formatDate(postPaymentPurchase.paymentConfirmedTime(), locale);
+        String body = emailTemplates.get("purchase-confirmed.body", locale)
+                .render(postPaymentPurchase.getQuantity(), product.getName(), confirmedAt);
 
         Email email = Email.to(postPaymentPurchase.buyerEmail())
                 .from(postPaymentPurchase.sellerEmail())
-                .subject("Payment confirmed! Your product is being prepared")
+                .subject(emailTemplates.get("purchase-confirmed.subject", locale).render())
                 .body(body)
                 .product(product)
                 .build();
@@ -2,16 +2,21 @@ package br.com.zup.edu.nossalojavirtual.purchase;
 
 import br.com.zup.edu.nossalojavirtual.shared.email.Email;
 import br.com.zup.edu.nossalojavirtual.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailTemplates;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.Locale;
+
 @Component
 class SendPurchaseFailEmail implements PostPurchaseAction {
 
     private final EmailService emailService;
+    private final EmailTemplates emailTemplates;
 
-    SendPurchaseFailEmail(EmailService emailService) {
+    SendPurchaseFailEmail(EmailService emailService, EmailTemplates emailTemplates) {
         this.emailService = emailService;
+        this.emailTemplates = emailTemplates;
     }
 
     /**
@@ -30,10 +35,12 @@ class SendPurchaseFailEmail implements PostPurchaseAction {
                 .buildAndExpand(postPaymentPurchase.getId())
                 .toString();
 
-        String body = "An error occurred when processing your payment, try again in this link: " + postPaymentPurchase.paymentUrl(retryPaymentUrl);
+        Locale locale = emailTemplates.localeOf(postPaymentPurchase.buyerEmail());
+        String body = emailTemplates.get("purchase-failed.body", locale).render(postPaymentPurchase.paymentUrl(retryPaymentUrl));
+
         Email email = Email.to(postPaymentPurchase.buyerEmail())
                 .from(postPaymentPurchase.sellerEmail())
-                .subject("Payment could not be confirmed")
+                .subject(emailTemplates.get("purchase-failed.subject", locale).render())
                 .body(body)
                 .product(postPaymentPurchase.getProduct())
                 .build();
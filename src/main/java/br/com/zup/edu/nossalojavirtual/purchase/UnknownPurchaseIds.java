@@ -0,0 +1,19 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.shared.validators.NegativeLookupCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Purchase ids recently looked up and not found, invalidated by {@link UnknownPurchaseIdsListener}
+ */
+@Component
+class UnknownPurchaseIds extends NegativeLookupCache<Long> {
+
+    UnknownPurchaseIds(@Value("${purchase.unknown-ids.max-size:100000}") int maxSize,
+                       @Value("${purchase.unknown-ids.ttl:PT1M}") Duration ttl) {
+        super(maxSize, ttl);
+    }
+}
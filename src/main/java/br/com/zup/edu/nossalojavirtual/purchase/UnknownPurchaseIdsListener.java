@@ -0,0 +1,37 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import javax.persistence.PostPersist;
+
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
+
+/**
+ * Entity listener of {@link Purchase} that removes every new id from {@link UnknownPurchaseIds}, again after the commit
+ * so a lookup that did not see the uncommitted row is forgotten too
+ */
+@Component
+class UnknownPurchaseIdsListener {
+
+    private final UnknownPurchaseIds unknownPurchaseIds;
+
+    UnknownPurchaseIdsListener(UnknownPurchaseIds unknownPurchaseIds) {
+        this.unknownPurchaseIds = unknownPurchaseIds;
+    }
+
+    @PostPersist
+    void invalidate(Purchase purchase) {
+        unknownPurchaseIds.invalidate(purchase.getId());
+
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    unknownPurchaseIds.invalidate(purchase.getId());
+                }
+            });
+        }
+    }
+}
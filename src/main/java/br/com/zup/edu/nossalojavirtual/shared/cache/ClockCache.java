@@ -0,0 +1,149 @@
+package br.com.zup.edu.nossalojavirtual.shared.cache;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ConcurrentHashMap} bounded to {@code maxSize} entries, evicting an approximation of the least recently
+ * used ones with the CLOCK algorithm.
+ * <p>
+ * Reading an entry only marks it as referenced, so reads never lock. The entries wait in insertion order for
+ * eviction: a referenced entry gets a second chance and goes back to the end of the line, an unreferenced one is
+ * evicted. The writer that takes the map over its size evicts, so the map can briefly hold a few more entries. Removed
+ * and replaced entries leave their place in line behind, it is cleaned up once the line is twice the maximum size.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ClockCache<K, V> {
+
+    private final int maxSize;
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clockSize = new AtomicInteger();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize how many entries are kept
+     */
+    public ClockCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the value of the key, or {@code null} when it is not cached
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        entry.referenced = true;
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        Entry<K, V> entry = new Entry<>(key, value);
+        entries.put(key, entry);
+        enqueue(entry);
+        evict();
+    }
+
+    /**
+     * @return the value already cached for the key, or {@code null} when the given one was cached
+     */
+    public V putIfAbsent(K key, V value) {
+        Entry<K, V> entry = new Entry<>(key, value);
+        Entry<K, V> existing = entries.putIfAbsent(key, entry);
+        if (existing != null) {
+            existing.referenced = true;
+            return existing.value;
+        }
+
+        enqueue(entry);
+        evict();
+        return null;
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * removes the key only while it is cached with this value
+     */
+    public void remove(K key, V value) {
+        entries.computeIfPresent(key, (cached, entry) -> Objects.equals(entry.value, value) ? null : entry);
+    }
+
+    public void clear() {
+        entries.clear();
+        clock.clear();
+        clockSize.set(0);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void evict() {
+        // every entry is polled at most twice, once to lose its second chance and once to be evicted
+        int budget = 2 * clockSize.get() + 1;
+
+        while (budget-- > 0 && (entries.size() > maxSize || clockSize.get() > 2 * maxSize)) {
+            Entry<K, V> entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            clockSize.decrementAndGet();
+
+            // replaced or removed meanwhile, the entry in the map has its own place in the clock
+            if (entries.get(entry.key) != entry) {
+                continue;
+            }
+
+            if (entries.size() > maxSize) {
+                if (!entry.referenced) {
+                    if (entries.remove(entry.key, entry)) {
+                        evictions.increment();
+                    }
+                    continue;
+                }
+                entry.referenced = false;
+            }
+
+            enqueue(entry);
+        }
+    }
+
+    private void enqueue(Entry<K, V> entry) {
+        clock.add(entry);
+        clockSize.incrementAndGet();
+    }
+
+    private static class Entry<K, V> {
+
+        private final K key;
+        private final V value;
+        private volatile boolean referenced;
+
+        private Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An {@link Email} as it is written in the archive files, one per line
+ */
+public class ArchivedEmail {
+
+    private Long id;
+    private String to;
+    private String from;
+    private String subject;
+    private String body;
+    private UUID productId;
+    private LocalDateTime sentAt;
+
+    /**
+     * @deprecated frameworks eyes only
+     */
+    @Deprecated
+    private ArchivedEmail() {
+    }
+
+    public ArchivedEmail(Long id, String to, String from, String subject, String body, UUID productId, LocalDateTime sentAt) {
+        this.id = id;
+        this.to = to;
+        this.from = from;
+        this.subject = subject;
+        this.body = body;
+        this.productId = productId;
+        this.sentAt = sentAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+}
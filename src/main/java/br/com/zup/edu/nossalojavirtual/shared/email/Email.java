@@ -7,20 +7,28 @@ import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PastOrPresent;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import static java.time.LocalDateTime.now;
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.GenerationType.SEQUENCE;
 
 /**
  * This class represents the email in the system form
  */
-@Table(name = "emails")
+@Table(name = "emails", indexes = {
+        @Index(name = "emails_sent_month_idx", columnList = "email_sent_month"),
+        @Index(name = "emails_archive_run_idx", columnList = "email_archive_run")})
 @Entity
 public class Email {
 
+    /**
+     * a pooled sequence lets hibernate batch the inserts, see {@link EmailAuditLog}
+     */
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = "emails_sequence")
+    @SequenceGenerator(name = "emails_sequence", sequenceName = "emails_sequence", allocationSize = 50)
     private Long id;
 
     @Column(name = "email_receiver")
@@ -51,6 +59,25 @@ public class Email {
     @NotNull
     private LocalDateTime sentAt = now();
 
+    /**
+     * the month of {@link #sentAt} as yyyyMM, emails are archived and purged by whole months, see {@link EmailArchive}
+     */
+    @Column(name = "email_sent_month")
+    @NotNull
+    private Integer sentMonth = sentMonthOf(sentAt.toLocalDate());
+
+    /**
+     * the {@link EmailArchive} run that is moving this email to a file, null until one takes it
+     */
+    @Column(name = "email_archive_run")
+    private Long archiveRun;
+
+    /**
+     * whether the email is recorded by the {@link EmailAuditLog} once sent
+     */
+    @Transient
+    private boolean audited;
+
     /**
      * @param to      the email receiver
      * @param from    the emails sender
@@ -61,7 +88,8 @@ public class Email {
                   String from,
                   String subject,
                   String body,
-                  Product product) {
+                  Product product,
+                  boolean audited) {
 
 
         this.to = to;
@@ -69,6 +97,7 @@ public class Email {
         this.subject = subject;
         this.body = body;
         this.product = product;
+        this.audited = audited;
     }
 
     /**
@@ -102,6 +131,32 @@ public class Email {
         return body;
     }
 
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    boolean isAudited() {
+        return audited;
+    }
+
+    boolean hasProduct() {
+        return product != null;
+    }
+
+    /**
+     * @return the id of the product the email is about, or {@code null} when there is none
+     */
+    UUID getProductId() {
+        return product == null ? null : product.getId();
+    }
+
+    /**
+     * @return the month partition of a date as yyyyMM
+     */
+    static int sentMonthOf(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
     public static class EmailTo {
         private final String to;
 
@@ -151,13 +206,22 @@ public class Email {
                     public class EmailWithBodyAndProduct {
 
                         private final Product product;
+                        private boolean audited;
 
                         private EmailWithBodyAndProduct(Product product) {
                             this.product = product;
                         }
 
+                        /**
+                         * records the email in the {@link EmailAuditLog} once it is sent
+                         */
+                        public EmailWithBodyAndProduct audited() {
+                            this.audited = true;
+                            return this;
+                        }
+
                         public Email build() {
-                            return new Email(to, from, subject, body, product);
+                            return new Email(to, from, subject, body, product, audited);
                         }
                     }
                 }
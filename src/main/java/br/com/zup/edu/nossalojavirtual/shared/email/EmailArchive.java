@@ -0,0 +1,199 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.time.LocalDate.now;
+
+/**
+ * Moves the emails of months older than {@code email.retention.keep-months} from the {@code emails} table to gzip
+ * NDJSON files and drops them with a single delete per archive run.
+ * <p>
+ * A run first marks the emails of the month it takes, then writes them to a temporary file that is synced and moved
+ * in place as {@code emails-<month>-<run>.ndjson.gz}, and only then deletes them. A run that did not finish is done
+ * again by the next one, rewriting the same file, so a crash never archives an email twice or loses one.
+ */
+@Component
+public class EmailArchive {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmailArchive.class);
+
+    private final EmailRepository emailRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper mapper;
+    private final Path directory;
+    private final int keepMonths;
+    private final AtomicLong lastRun = new AtomicLong();
+
+    EmailArchive(EmailRepository emailRepository,
+                 TransactionTemplate transactionTemplate,
+                 ObjectMapper mapper,
+                 @Value("${email.archive.directory:email-archive}") Path directory,
+                 @Value("${email.retention.keep-months:3}") int keepMonths) {
+        this.emailRepository = emailRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.mapper = mapper;
+        this.directory = directory;
+        this.keepMonths = keepMonths;
+    }
+
+    @Scheduled(cron = "${email.retention.cron:0 30 3 * * *}")
+    void archiveExpiredMonths() {
+        int oldestKeptMonth = Email.sentMonthOf(now().minusMonths(keepMonths));
+
+        emailRepository.findSentMonthsBefore(oldestKeptMonth)
+                .forEach(this::archive);
+    }
+
+    /**
+     * @param month the month partition as yyyyMM
+     */
+    void archive(int month) {
+        try {
+            Files.createDirectories(directory);
+
+            long newRun = lastRun.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+            transactionTemplate.execute(status -> emailRepository.assignArchiveRun(month, newRun));
+
+            for (Long run : emailRepository.findArchiveRuns(month)) {
+                archive(month, run);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOG.error("[EMAIL] [ARCHIVE] Could not archive the emails of {}, they were kept in the database", month, e);
+        }
+    }
+
+    private void archive(int month, long run) throws IOException {
+        Path file = fileOf(month, run);
+        Path temporary = Files.createTempFile(directory, "emails-", ".tmp");
+
+        try {
+            long archived = transactionTemplate.execute(status -> write(run, temporary));
+            Files.move(temporary, file, ATOMIC_MOVE, REPLACE_EXISTING);
+            syncDirectory();
+
+            Integer purged = transactionTemplate.execute(status -> emailRepository.deleteByArchiveRun(run));
+
+            LOG.info("[EMAIL] [ARCHIVE] Archived {} email(s) of {} to {} and purged {} row(s)", archived, month, file, purged);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private long write(long run, Path file) {
+        long archived = 0;
+
+        try (Stream<ArchivedEmail> emails = emailRepository.streamByArchiveRun(run);
+             FileOutputStream output = new FileOutputStream(file.toFile());
+             GZIPOutputStream gzip = new GZIPOutputStream(output);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, UTF_8))) {
+
+            for (ArchivedEmail email : (Iterable<ArchivedEmail>) emails::iterator) {
+                writer.write(mapper.writeValueAsString(email));
+                writer.write('\n');
+                archived++;
+            }
+
+            writer.flush();
+            gzip.finish();
+            output.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return archived;
+    }
+
+    /**
+     * makes the moved file durable before its emails are deleted, where the file system allows syncing a directory
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOG.debug("[EMAIL] [ARCHIVE] Could not sync the directory {}", directory, e);
+        }
+    }
+
+    /**
+     * @param seller the email receiver
+     * @param from   first day of the range (inclusive)
+     * @param to     last day of the range (inclusive)
+     * @return the archived emails received by the seller in the date range, ordered by month
+     */
+    public List<ArchivedEmail> read(String seller, LocalDate from, LocalDate to) {
+        List<ArchivedEmail> emails = new ArrayList<>();
+
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            for (Path file : filesOf(Email.sentMonthOf(month.atDay(1)))) {
+                read(file, seller, from, to, emails);
+            }
+        }
+
+        return emails;
+    }
+
+    private void read(Path file, String seller, LocalDate from, LocalDate to, List<ArchivedEmail> emails) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ArchivedEmail email = mapper.readValue(line, ArchivedEmail.class);
+                LocalDate sentAt = email.getSentAt().toLocalDate();
+
+                if (seller.equals(email.getTo()) && !sentAt.isBefore(from) && !sentAt.isAfter(to)) {
+                    emails.add(email);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read the email archive " + file, e);
+        }
+    }
+
+    /**
+     * @return the files of the month in the order of their runs
+     */
+    private List<Path> filesOf(int month) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "emails-" + month + "-*.ndjson.gz")) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not list the email archive " + directory, e);
+        }
+
+        files.sort(null);
+        return files;
+    }
+
+    private Path fileOf(int month, long run) {
+        return directory.resolve("emails-" + month + "-" + run + ".ndjson.gz");
+    }
+}
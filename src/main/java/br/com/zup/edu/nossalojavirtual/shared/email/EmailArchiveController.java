@@ -0,0 +1,37 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE;
+import static org.springframework.http.ResponseEntity.badRequest;
+import static org.springframework.http.ResponseEntity.ok;
+
+@RestController
+@RequestMapping("/api/emails/archive")
+class EmailArchiveController {
+
+    private final EmailArchive emailArchive;
+
+    EmailArchiveController(EmailArchive emailArchive) {
+        this.emailArchive = emailArchive;
+    }
+
+    @GetMapping
+    ResponseEntity<?> read(@RequestParam("seller") String seller,
+                           @RequestParam("from") @DateTimeFormat(iso = DATE) LocalDate from,
+                           @RequestParam("to") @DateTimeFormat(iso = DATE) LocalDate to) {
+
+        if (from.isAfter(to)) {
+            return badRequest().build();
+        }
+
+        return ok(emailArchive.read(seller, from, to));
+    }
+}
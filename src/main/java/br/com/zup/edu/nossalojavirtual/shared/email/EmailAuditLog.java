@@ -0,0 +1,188 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME;
+import static org.springframework.transaction.TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+
+/**
+ * Keeps the record of the sent emails, buffering them and writing in JDBC batches.
+ * <p>
+ * Audited emails are appended by {@link LocalEmailService} once they are really sent. Appending only buffers the
+ * email, the buffer is written in batches of {@code email.audit.batch-size}, each one in its own transaction, so the
+ * sender never pays for the inserts nor has its transaction affected by them. The buffer is flushed every
+ * {@code email.audit.flush-interval} and, off the sender's thread, as soon as it holds a full batch. At most
+ * {@code email.audit.max-buffered} emails are buffered, the ones appended beyond that are counted as lost.
+ */
+@Component
+public class EmailAuditLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmailAuditLog.class);
+
+    private final EmailRepository emailRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBuffered;
+    private final Executor flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Queue<Email> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+
+    EmailAuditLog(EmailRepository emailRepository,
+                  TransactionTemplate transactionTemplate,
+                  @Value("${email.audit.batch-size:50}") int batchSize,
+                  @Value("${email.audit.max-buffered:10000}") int maxBuffered,
+                  @Qualifier(APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor flusher) {
+
+        if (batchSize < 1 || maxBuffered < batchSize) {
+            throw new IllegalArgumentException("email.audit.batch-size must be greater than 0 and not greater than email.audit.max-buffered");
+        }
+
+        this.emailRepository = emailRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxBuffered = maxBuffered;
+        this.flusher = flusher;
+    }
+
+    /**
+     * @param email a sent email, recorded only when it is audited and about a product
+     */
+    void append(Email email) {
+        if (!email.isAudited() || !email.hasProduct()) {
+            return;
+        }
+
+        if (buffered.incrementAndGet() > maxBuffered) {
+            buffered.decrementAndGet();
+            lost.increment();
+            LOG.warn("[EMAIL] [AUDIT] The audit buffer is full, the email to {} was not recorded", email.getTo());
+            return;
+        }
+
+        buffer.add(email);
+        if (buffered.get() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * writes the buffered emails, waiting for a flush that is already writing them
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            writeBuffered();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * writes the buffered emails, unless another flush is already writing them
+     */
+    @Scheduled(fixedDelayString = "${email.audit.flush-interval:PT1S}")
+    void flushIfIdle() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+
+        try {
+            writeBuffered();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * flushes a full batch on the {@code flusher}, at most one request waits there at a time
+     */
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushIfIdle();
+            });
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+            LOG.warn("[EMAIL] [AUDIT] Could not start a flush, the buffer waits for the next scheduled one");
+        }
+    }
+
+    private void writeBuffered() {
+        List<Email> batch;
+        while (!(batch = drain()).isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private List<Email> drain() {
+        List<Email> batch = new ArrayList<>(batchSize);
+
+        Email email;
+        while (batch.size() < batchSize && (email = buffer.poll()) != null) {
+            batch.add(email);
+        }
+
+        buffered.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void write(List<Email> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> emailRepository.saveAll(batch));
+            written.add(batch.size());
+        } catch (RuntimeException e) {
+            lost.add(batch.size());
+            LOG.error("[EMAIL] [AUDIT] Could not record {} sent email(s)", batch.size(), e);
+        }
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getLost() {
+        return lost.sum();
+    }
+
+    public int getBuffered() {
+        return buffered.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushLock.lock();
+        try {
+            writeBuffered();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+}
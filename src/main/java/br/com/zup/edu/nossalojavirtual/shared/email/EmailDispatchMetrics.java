@@ -0,0 +1,78 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Counters of the asynchronous email dispatch
+ */
+public class EmailDispatchMetrics {
+
+    private final BlockingQueue<?> queue;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    EmailDispatchMetrics(BlockingQueue<?> queue) {
+        this.queue = queue;
+    }
+
+    void sent(long elapsedNanos) {
+        sent.increment();
+        sendNanos.add(elapsedNanos);
+        maxSendNanos.accumulateAndGet(elapsedNanos, Math::max);
+    }
+
+    void failed() {
+        failed.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void spilled() {
+        spilled.increment();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    /**
+     * @return the average time spent by the email sink, in microseconds
+     */
+    public long getAverageSendLatencyMicros() {
+        long count = sent.sum();
+        return count == 0 ? 0 : NANOSECONDS.toMicros(sendNanos.sum() / count);
+    }
+
+    /**
+     * @return the slowest send seen by the email sink, in microseconds
+     */
+    public long getMaxSendLatencyMicros() {
+        return NANOSECONDS.toMicros(maxSendNanos.get());
+    }
+}
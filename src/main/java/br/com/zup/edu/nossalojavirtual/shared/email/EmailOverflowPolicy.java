@@ -0,0 +1,22 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+/**
+ * What {@link QueuedEmailService} does with a new email when its queue is full
+ */
+public enum EmailOverflowPolicy {
+
+    /**
+     * the caller waits until there is room in the queue
+     */
+    BLOCK,
+
+    /**
+     * the oldest queued email is discarded to make room for the new one
+     */
+    DROP_OLDEST,
+
+    /**
+     * the new email is appended to a file and sent when the queue drains
+     */
+    SPILL_TO_DISK
+}
@@ -1,10 +1,44 @@
 package br.com.zup.edu.nossalojavirtual.shared.email;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface EmailRepository extends Repository<Email, Long> {
 
     Email save(Email email);
 
+    List<Email> saveAll(Iterable<Email> emails);
+
+    long count();
+
     void deleteAll();
+
+    @Query("select distinct e.sentMonth from Email e where e.sentMonth < :month order by e.sentMonth")
+    List<Integer> findSentMonthsBefore(@Param("month") Integer month);
+
+    /**
+     * marks the emails of the month not yet taken by an archive run as part of the given run
+     */
+    @Modifying
+    @Query("update Email e set e.archiveRun = :run where e.sentMonth = :month and e.archiveRun is null")
+    int assignArchiveRun(@Param("month") Integer month, @Param("run") Long run);
+
+    /**
+     * @return the runs of the month that were started and not purged yet, oldest first
+     */
+    @Query("select distinct e.archiveRun from Email e where e.sentMonth = :month and e.archiveRun is not null order by e.archiveRun")
+    List<Long> findArchiveRuns(@Param("month") Integer month);
+
+    @Query("select new br.com.zup.edu.nossalojavirtual.shared.email.ArchivedEmail(e.id, e.to, e.from, e.subject, e.body, e.product.id, e.sentAt) " +
+            "from Email e where e.archiveRun = :run order by e.id")
+    Stream<ArchivedEmail> streamByArchiveRun(@Param("run") Long run);
+
+    @Modifying
+    @Query("delete from Email e where e.archiveRun = :run")
+    int deleteByArchiveRun(@Param("run") Long run);
 }
@@ -0,0 +1,124 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * A template parsed once into literal segments and argument slots, e.g. {@code "{0} in {1}"}.
+ * <p>
+ * Compiling fails on a placeholder that is not a number and on arguments that are never used, rendering fails when
+ * an argument is missing. Rendering only appends the segments to a per thread {@link StringBuilder}
+ */
+public final class EmailTemplate {
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String[] literals;
+    private final int[] slots;
+    private final int argumentCount;
+
+    private EmailTemplate(String[] literals, int[] slots, int argumentCount) {
+        this.literals = literals;
+        this.slots = slots;
+        this.argumentCount = argumentCount;
+    }
+
+    /**
+     * @param source the template text, {@code {n}} is replaced by the argument n
+     * @return the compiled template
+     * @throws IllegalArgumentException if a placeholder is not a number or an argument before the last one is unused
+     */
+    static EmailTemplate compile(String source) {
+        notNull(source, "source must not be null");
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < source.length()) {
+            int end = placeholderEnd(source, i);
+            if (end < 0) {
+                literal.append(source.charAt(i++));
+                continue;
+            }
+
+            literals.add(literal.toString());
+            literal.setLength(0);
+            slots.add(argumentOf(source, i, end));
+            i = end + 1;
+        }
+        literals.add(literal.toString());
+
+        int argumentCount = slots.stream().mapToInt(slot -> slot + 1).max().orElse(0);
+        for (int argument = 0; argument < argumentCount; argument++) {
+            if (!slots.contains(argument)) {
+                throw new IllegalArgumentException(format("the argument {%d} is never used in the email template \"%s\"", argument, source));
+            }
+        }
+
+        return new EmailTemplate(literals.toArray(String[]::new), slots.stream().mapToInt(Integer::intValue).toArray(), argumentCount);
+    }
+
+    /**
+     * @return the index of the closing brace if a placeholder starts at {@code start}, -1 otherwise
+     */
+    private static int placeholderEnd(String source, int start) {
+        if (source.charAt(start) != '{') {
+            return -1;
+        }
+
+        return source.indexOf('}', start + 1);
+    }
+
+    private static int argumentOf(String source, int start, int end) {
+        String placeholder = source.substring(start + 1, end);
+        if (placeholder.isEmpty() || placeholder.length() > 3 || !placeholder.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException(format("the placeholder {%s} at %d of the email template \"%s\" must be an argument index",
+                    placeholder, start, source));
+        }
+
+        return Integer.parseInt(placeholder);
+    }
+
+    /**
+     * @return how many arguments the template must be rendered with
+     */
+    int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * @param arguments the values of the placeholders
+     * @return the rendered text
+     * @throws IllegalArgumentException if an argument is missing
+     */
+    public String render(Object... arguments) {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+
+        return renderTo(builder, arguments).toString();
+    }
+
+    /**
+     * @param builder   where the rendered text is appended
+     * @param arguments the values of the placeholders
+     * @return the same builder
+     */
+    public StringBuilder renderTo(StringBuilder builder, Object... arguments) {
+        if (arguments.length < argumentCount) {
+            throw new IllegalArgumentException(format("the email template needs %d argument(s), got %d", argumentCount, arguments.length));
+        }
+
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(arguments[slots[i]])
+                    .append(literals[i + 1]);
+        }
+
+        return builder;
+    }
+}
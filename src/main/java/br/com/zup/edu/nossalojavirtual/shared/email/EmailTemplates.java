@@ -0,0 +1,131 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The email templates of {@code email-templates/messages*.properties}, compiled once per locale at startup.
+ * <p>
+ * The locale of a recipient comes from the suffix of its email domain, configured in
+ * {@code email.templates.recipient-locales} as {@code suffix=languageTag} pairs. Other recipients get the
+ * default {@code messages.properties}. A localized template must take the same arguments as the default one, it is
+ * checked at startup
+ */
+@Component
+public class EmailTemplates {
+
+    private static final String DATE_PATTERN = "date.pattern";
+
+    private final Map<String, Locale> localesByDomainSuffix = new LinkedHashMap<>();
+    private final Map<Locale, Map<String, EmailTemplate>> templates = new HashMap<>();
+    private final Map<Locale, DateTimeFormatter> dateFormatters = new HashMap<>();
+
+    EmailTemplates(@Value("${email.templates.recipient-locales:.br=pt-BR}") List<String> recipientLocales) {
+        load(Locale.ROOT, new ClassPathResource("email-templates/messages.properties"));
+
+        for (String recipientLocale : recipientLocales) {
+            String[] suffixAndTag = recipientLocale.split("=");
+            if (suffixAndTag.length != 2) {
+                throw new IllegalArgumentException("email.templates.recipient-locales entries must be suffix=languageTag: " + recipientLocale);
+            }
+
+            Locale locale = Locale.forLanguageTag(suffixAndTag[1].trim());
+            localesByDomainSuffix.put(suffixAndTag[0].trim().toLowerCase(), locale);
+
+            if (!templates.containsKey(locale)) {
+                load(locale, new ClassPathResource("email-templates/messages_" + locale.toString() + ".properties"));
+            }
+        }
+    }
+
+    private void load(Locale locale, Resource resource) {
+        Properties properties;
+        try {
+            properties = PropertiesLoaderUtils.loadProperties(new EncodedResource(resource, UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not load the email templates " + resource, e);
+        }
+
+        Map<String, EmailTemplate> compiled = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (DATE_PATTERN.equals(key)) {
+                continue;
+            }
+
+            EmailTemplate template;
+            try {
+                template = EmailTemplate.compile(properties.getProperty(key));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("invalid email template " + key + " in " + resource + ": " + e.getMessage(), e);
+            }
+
+            EmailTemplate fallback = templates.getOrDefault(Locale.ROOT, Map.of()).get(key);
+            if (fallback != null && fallback.getArgumentCount() != template.getArgumentCount()) {
+                throw new IllegalStateException(format("the email template %s in %s takes %d argument(s), the default one takes %d",
+                        key, resource, template.getArgumentCount(), fallback.getArgumentCount()));
+            }
+
+            compiled.put(key, template);
+        }
+
+        templates.put(locale, compiled);
+        if (properties.containsKey(DATE_PATTERN)) {
+            dateFormatters.put(locale, DateTimeFormatter.ofPattern(properties.getProperty(DATE_PATTERN), locale));
+        }
+    }
+
+    /**
+     * @param recipient an email address
+     * @return the locale of the recipient, {@link Locale#ROOT} when no domain suffix matches
+     */
+    public Locale localeOf(String recipient) {
+        String address = recipient.toLowerCase();
+
+        for (Map.Entry<String, Locale> suffix : localesByDomainSuffix.entrySet()) {
+            if (address.endsWith(suffix.getKey())) {
+                return suffix.getValue();
+            }
+        }
+
+        return Locale.ROOT;
+    }
+
+    /**
+     * @param key    the template key
+     * @param locale the recipient locale
+     * @return the template of the locale, or the default one if the locale does not define it
+     * @throws IllegalArgumentException if no template has this key
+     */
+    public EmailTemplate get(String key, Locale locale) {
+        EmailTemplate template = templates.getOrDefault(locale, Map.of()).get(key);
+        if (template == null) {
+            template = templates.get(Locale.ROOT).get(key);
+        }
+
+        if (template == null) {
+            throw new IllegalArgumentException("there is no email template " + key);
+        }
+
+        return template;
+    }
+
+    /**
+     * @return the temporal formatted with the {@code date.pattern} of the locale
+     */
+    public String formatDate(TemporalAccessor temporal, Locale locale) {
+        return dateFormatters.getOrDefault(locale, dateFormatters.get(Locale.ROOT)).format(temporal);
+    }
+}
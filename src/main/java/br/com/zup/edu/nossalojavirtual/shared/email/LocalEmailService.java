@@ -9,9 +9,19 @@ class LocalEmailService implements EmailService {
 
     private static final Logger LOG = LoggerFactory.getLogger(LocalEmailService.class);
 
+    private final EmailAuditLog emailAuditLog;
+
+    LocalEmailService(EmailAuditLog emailAuditLog) {
+        this.emailAuditLog = emailAuditLog;
+    }
+
+    /**
+     * an audited email is recorded in the {@link EmailAuditLog} only once it was sent
+     */
     @Override
     public void send(Email email) {
 
         LOG.info("[PRODUCT] [QUESTION] Sending email to {}, from: {}, subject: {}, body: {}", email.getTo(), email.getFrom(), email.getSubject(), email.getBody());
+        emailAuditLog.append(email);
     }
 }
@@ -0,0 +1,300 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.products.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Sends emails out of the request thread: emails are put in a bounded queue and a pool of workers hands them to
+ * {@link LocalEmailService}. When the queue is full the configured {@link EmailOverflowPolicy} applies.
+ * <p>
+ * Spilled emails are moved back to the queue whenever it is idle, only while it has room, the rest is spilled again.
+ * The files left being replayed by a previous run are replayed as well.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(name = "email.dispatch.async", havingValue = "true", matchIfMissing = true)
+class QueuedEmailService implements EmailService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueuedEmailService.class);
+
+    private static final String REPLAYING_SUFFIX = ".replaying";
+
+    private final LocalEmailService sink;
+    private final ObjectMapper mapper;
+    private final ProductRepository productRepository;
+    private final BlockingQueue<Email> queue;
+    private final EmailOverflowPolicy overflowPolicy;
+    private final Path spillFile;
+    private final Queue<Path> leftovers = new ConcurrentLinkedQueue<>();
+    private final ExecutorService workers;
+    private final EmailDispatchMetrics metrics;
+    private volatile boolean running = true;
+
+    QueuedEmailService(LocalEmailService sink,
+                       ObjectMapper mapper,
+                       ProductRepository productRepository,
+                       @Value("${email.dispatch.queue-capacity:10000}") int queueCapacity,
+                       @Value("${email.dispatch.workers:4}") int workers,
+                       @Value("${email.dispatch.overflow-policy:BLOCK}") EmailOverflowPolicy overflowPolicy,
+                       @Value("${email.dispatch.spill-directory:email-spill}") Path spillDirectory) {
+        this.sink = sink;
+        this.mapper = mapper;
+        this.productRepository = productRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = spillDirectory.resolve("emails.ndjson");
+        this.metrics = new EmailDispatchMetrics(queue);
+        this.workers = newFixedThreadPool(workers, new CustomizableThreadFactory("email-dispatch-"));
+
+        this.leftovers.addAll(leftoversIn(spillDirectory));
+
+        for (int i = 0; i < workers; i++) {
+            this.workers.execute(this::work);
+        }
+    }
+
+    @Override
+    public void send(Email email) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(email);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting to queue an email", e);
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(email)) {
+                    if (queue.poll() != null) {
+                        metrics.dropped();
+                    }
+                }
+                break;
+            case SPILL_TO_DISK:
+                if (!queue.offer(email)) {
+                    spill(email);
+                }
+                break;
+        }
+    }
+
+    public EmailDispatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void work() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Email email = queue.poll(1, SECONDS);
+                if (email == null) {
+                    replaySpilled();
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                sink.send(email);
+                metrics.sent(System.nanoTime() - start);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                metrics.failed();
+                LOG.error("[EMAIL] [DISPATCH] Could not send email", e);
+            }
+        }
+    }
+
+    private synchronized void spill(Email email) {
+        try {
+            Files.createDirectories(spillFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, UTF_8, CREATE, APPEND)) {
+                writer.write(mapper.writeValueAsString(new SpilledEmail(email)));
+                writer.newLine();
+            }
+            metrics.spilled();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not spill email to " + spillFile, e);
+        }
+    }
+
+    /**
+     * moves the spilled emails back to the queue while it has room, spilling again the ones that do not fit
+     */
+    private void replaySpilled() {
+        Path replaying = leftovers.poll();
+        if (replaying == null) {
+            replaying = takeSpilled();
+        }
+        if (replaying == null) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(replaying, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!queue.offer(mapper.readValue(line, SpilledEmail.class).toEmail(productRepository))) {
+                    respill(line, reader);
+                    break;
+                }
+            }
+            Files.delete(replaying);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("[EMAIL] [DISPATCH] Could not replay spilled emails from {}", replaying, e);
+        }
+    }
+
+    /**
+     * @return the spilled emails moved to a file of their own, or {@code null} when there are none
+     */
+    private synchronized Path takeSpilled() {
+        if (!Files.exists(spillFile)) {
+            return null;
+        }
+
+        try {
+            return Files.move(spillFile, spillFile.resolveSibling("emails-" + System.nanoTime() + REPLAYING_SUFFIX), ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("[EMAIL] [DISPATCH] Could not replay spilled emails", e);
+            return null;
+        }
+    }
+
+    /**
+     * appends the email that did not fit the queue and the ones not read yet back to the spill file
+     */
+    private synchronized void respill(String line, BufferedReader unread) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile, UTF_8, CREATE, APPEND)) {
+            do {
+                writer.write(line);
+                writer.newLine();
+            } while ((line = unread.readLine()) != null);
+        }
+    }
+
+    /**
+     * @return the files a previous run was replaying when it stopped
+     */
+    private static List<Path> leftoversIn(Path spillDirectory) {
+        if (!Files.isDirectory(spillDirectory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            List<Path> leftovers = new ArrayList<>();
+            files.filter(file -> file.getFileName().toString().endsWith(REPLAYING_SUFFIX))
+                    .sorted()
+                    .forEach(leftovers::add);
+            return leftovers;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not list the spilled emails in " + spillDirectory, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(30, SECONDS)) {
+            LOG.warn("[EMAIL] [DISPATCH] {} email(s) were not sent before shutdown", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * The part of an {@link Email} needed to send it again after being spilled
+     */
+    static class SpilledEmail {
+
+        private String to;
+        private String from;
+        private String subject;
+        private String body;
+        private UUID productId;
+        private boolean audited;
+
+        /**
+         * @deprecated frameworks eyes only
+         */
+        @Deprecated
+        SpilledEmail() {
+        }
+
+        SpilledEmail(Email email) {
+            this.to = email.getTo();
+            this.from = email.getFrom();
+            this.subject = email.getSubject();
+            this.body = email.getBody();
+            this.productId = email.getProductId();
+            this.audited = email.isAudited();
+        }
+
+        /**
+         * @return the email to send again, without a product to be recorded when the product no longer exists
+         */
+        Email toEmail(ProductRepository productRepository) {
+            var email = Email.to(to)
+                    .from(from)
+                    .subject(subject)
+                    .body(body)
+                    .product(productId == null ? null : productRepository.findById(productId).orElse(null));
+
+            return audited ? email.audited().build() : email.build();
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public UUID getProductId() {
+            return productId;
+        }
+
+        public boolean isAudited() {
+            return audited;
+        }
+    }
+}
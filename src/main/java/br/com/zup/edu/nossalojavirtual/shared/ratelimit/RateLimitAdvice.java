@@ -0,0 +1,69 @@
+package br.com.zup.edu.nossalojavirtual.shared.ratelimit;
+
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Applies {@link RateLimited} right after the request body is read, which happens before the body is validated
+ */
+@ControllerAdvice
+class RateLimitAdvice extends RequestBodyAdviceAdapter {
+
+    private final RateLimiter rateLimiter;
+
+    RateLimitAdvice(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return methodParameter.hasMethodAnnotation(RateLimited.class);
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return body;
+        }
+
+        RateLimited rateLimited = parameter.getMethodAnnotation(RateLimited.class);
+        rateLimiter.acquire(rateLimited.value(), authentication.getName(), productOf(rateLimited, body));
+
+        return body;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object productOf(RateLimited rateLimited, Object body) {
+        if (rateLimited.product().isEmpty()) {
+            return null;
+        }
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            var pathVariables = (Map<String, String>) attributes.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                    RequestAttributes.SCOPE_REQUEST);
+            if (pathVariables != null && pathVariables.containsKey(rateLimited.product())) {
+                return pathVariables.get(rateLimited.product());
+            }
+        }
+
+        var bodyProperties = PropertyAccessorFactory.forBeanPropertyAccess(body);
+        return bodyProperties.isReadableProperty(rateLimited.product()) ? bodyProperties.getPropertyValue(rateLimited.product()) : null;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.zup.edu.nossalojavirtual.shared.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a {@link RateLimited} handler is called more than its limit allows
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    RateLimitExceededException(Duration retryAfter) {
+        super("rate limit exceeded, retry after " + retryAfter);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the time to wait before the next request, in whole seconds rounded up
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, retryAfter.plusMillis(999).getSeconds());
+    }
+}
@@ -0,0 +1,30 @@
+package br.com.zup.edu.nossalojavirtual.shared.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits how many requests each authenticated user, and each product, can make to the annotated handler.
+ * <p>
+ * The limits are read from {@code rate-limit.<value>.per-user}, {@code rate-limit.<value>.per-product} and
+ * {@code rate-limit.<value>.window}, and are checked by {@link RateLimitAdvice} as soon as the request body is read,
+ * before validation or any repository access. The handler must have a {@code @RequestBody} parameter.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    /**
+     * @return the name of the limit, used to look up its configuration
+     */
+    String value();
+
+    /**
+     * @return the path variable or request body property holding the product id, empty to limit only per user
+     */
+    String product() default "";
+}
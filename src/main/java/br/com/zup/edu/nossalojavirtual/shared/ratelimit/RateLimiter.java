@@ -0,0 +1,83 @@
+package br.com.zup.edu.nossalojavirtual.shared.ratelimit;
+
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps a {@link SlidingWindowCounter} per limit and key, see {@link RateLimited}
+ */
+@Component
+class RateLimiter {
+
+    private final Environment environment;
+    private final ConcurrentMap<String, SlidingWindowCounter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Limits> limits = new ConcurrentHashMap<>();
+
+    RateLimiter(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * @param name    the name of the limit
+     * @param user    the authenticated user
+     * @param product the product being written, or null
+     * @throws RateLimitExceededException if the user or the product went over the limit, nothing is counted then
+     */
+    void acquire(String name, String user, Object product) {
+        Limits limit = limits.computeIfAbsent(name, this::limitsOf);
+        long now = System.nanoTime();
+
+        SlidingWindowCounter userCounter = acquire(name + ":user:" + user, limit.perUser, limit.window, now);
+        if (product == null) {
+            return;
+        }
+
+        try {
+            acquire(name + ":product:" + product, limit.perProduct, limit.window, now);
+        } catch (RateLimitExceededException e) {
+            userCounter.release(now);
+            throw e;
+        }
+    }
+
+    private SlidingWindowCounter acquire(String key, int limit, Duration window, long now) {
+        SlidingWindowCounter counter = counters.computeIfAbsent(key, k -> new SlidingWindowCounter(window.toNanos(), now));
+
+        long waitNanos = counter.tryAcquire(limit, now);
+        if (waitNanos > 0) {
+            throw new RateLimitExceededException(Duration.ofNanos(waitNanos));
+        }
+        return counter;
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.cleanup-interval:PT1M}")
+    void removeIdleCounters() {
+        long now = System.nanoTime();
+        counters.values().removeIf(counter -> counter.isIdle(now));
+    }
+
+    private Limits limitsOf(String name) {
+        String prefix = "rate-limit." + name;
+        return new Limits(environment.getProperty(prefix + ".per-user", Integer.class, 10),
+                environment.getProperty(prefix + ".per-product", Integer.class, 100),
+                environment.getProperty(prefix + ".window", Duration.class, Duration.ofMinutes(1)));
+    }
+
+    private static class Limits {
+
+        private final int perUser;
+        private final int perProduct;
+        private final Duration window;
+
+        private Limits(int perUser, int perProduct, Duration window) {
+            this.perUser = perUser;
+            this.perProduct = perProduct;
+            this.window = window;
+        }
+    }
+}
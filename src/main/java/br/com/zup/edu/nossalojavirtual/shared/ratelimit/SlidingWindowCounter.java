@@ -0,0 +1,113 @@
+package br.com.zup.edu.nossalojavirtual.shared.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free sliding window counter: the count of the previous fixed window is weighted by how much of it still
+ * overlaps the sliding window and added to the count of the current one.
+ */
+class SlidingWindowCounter {
+
+    private final long windowNanos;
+    private final AtomicReference<State> state;
+
+    SlidingWindowCounter(long windowNanos, long now) {
+        this.windowNanos = windowNanos;
+        this.state = new AtomicReference<>(new State(now, 0, 0));
+    }
+
+    /**
+     * @param limit max amount of requests in a window
+     * @param now   current {@link System#nanoTime()}
+     * @return 0 if the request was counted, otherwise how many nanos to wait before trying again
+     */
+    long tryAcquire(int limit, long now) {
+        while (true) {
+            State current = state.get();
+            State rolled = current.rollTo(now, windowNanos);
+
+            long elapsed = now - rolled.windowStart;
+            double previousWeight = (double) (windowNanos - elapsed) / windowNanos;
+            double estimated = rolled.previousCount * previousWeight + rolled.currentCount;
+
+            if (estimated + 1 > limit) {
+                return waitTime(rolled, limit, elapsed);
+            }
+
+            if (state.compareAndSet(current, new State(rolled.windowStart, rolled.previousCount, rolled.currentCount + 1))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * gives back a request counted by {@link #tryAcquire} that was rejected by another limit
+     *
+     * @param now current {@link System#nanoTime()}
+     */
+    void release(long now) {
+        while (true) {
+            State current = state.get();
+            State rolled = current.rollTo(now, windowNanos);
+
+            State released;
+            if (rolled.currentCount > 0) {
+                released = new State(rolled.windowStart, rolled.previousCount, rolled.currentCount - 1);
+            } else if (rolled.previousCount > 0) {
+                released = new State(rolled.windowStart, rolled.previousCount - 1, 0);
+            } else {
+                return;
+            }
+
+            if (state.compareAndSet(current, released)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if nothing was counted in the last two windows
+     */
+    boolean isIdle(long now) {
+        return now - state.get().windowStart >= 2 * windowNanos;
+    }
+
+    private long waitTime(State rolled, int limit, long elapsed) {
+        if (rolled.currentCount + 1 <= limit && rolled.previousCount > 0) {
+            double free = (double) (limit - rolled.currentCount - 1) / rolled.previousCount;
+            return Math.max(1, (long) (windowNanos * (1 - free)) - elapsed);
+        }
+
+        double free = rolled.currentCount == 0 ? 1 : (double) (limit - 1) / rolled.currentCount;
+        return (windowNanos - elapsed) + (long) (windowNanos * Math.max(0, 1 - free));
+    }
+
+    /**
+     * Immutable counts of the current and previous fixed windows
+     */
+    private static final class State {
+
+        private final long windowStart;
+        private final int previousCount;
+        private final int currentCount;
+
+        private State(long windowStart, int previousCount, int currentCount) {
+            this.windowStart = windowStart;
+            this.previousCount = previousCount;
+            this.currentCount = currentCount;
+        }
+
+        private State rollTo(long now, long windowNanos) {
+            long elapsed = now - windowStart;
+            if (elapsed < windowNanos) {
+                return this;
+            }
+
+            if (elapsed < 2 * windowNanos) {
+                return new State(windowStart + windowNanos, currentCount, 0);
+            }
+
+            return new State(now - elapsed % windowNanos, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.zup.edu.nossalojavirtual.shared.validators;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * An existence check that asks a {@link BloomFilter} first and only runs the real lookup, usually a query, when the
+ * filter says the value might exist. Can be given to {@link UniqueFieldValidator} as its {@code existsFunction}.
+ * <p>
+ * Until {@link #load} finishes, or when disabled, every check runs the real lookup
+ */
+public class BloomFilteredLookup implements Function<String, Boolean> {
+
+    private final BloomFilter filter;
+    private final Function<String, Boolean> lookup;
+    private final boolean enabled;
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private volatile boolean ready;
+
+    /**
+     * @param filter  the filter of the existing values
+     * @param lookup  the authoritative existence check
+     * @param enabled false to always run the lookup
+     */
+    public BloomFilteredLookup(BloomFilter filter, Function<String, Boolean> lookup, boolean enabled) {
+        this.filter = filter;
+        this.lookup = lookup;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Boolean apply(String value) {
+        if (value == null) {
+            return lookup.apply(null);
+        }
+
+        if (enabled && ready && !filter.mightContain(value)) {
+            skipped.increment();
+            return false;
+        }
+
+        lookups.increment();
+        boolean exists = lookup.apply(value);
+        if (!exists && ready) {
+            falsePositives.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * @return false only when the value is surely not stored, without running the lookup
+     */
+    public boolean mightExist(String value) {
+        boolean mightExist = !enabled || !ready || value == null || filter.mightContain(value);
+        if (!mightExist) {
+            skipped.increment();
+        }
+        return mightExist;
+    }
+
+    /**
+     * adds a value that was just inserted, must be called for every insert made after {@link #load} starts
+     */
+    public void add(String value) {
+        if (value != null) {
+            filter.add(value);
+        }
+    }
+
+    /**
+     * @param existing every value already stored, the filter is used only after all of them are added
+     */
+    public void load(Stream<String> existing) {
+        existing.forEach(this::add);
+        ready = true;
+    }
+
+    public BloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return how many checks were answered by the filter alone
+     */
+    public long getSkippedLookups() {
+        return skipped.sum();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return how many times the filter said maybe and the lookup said no
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+}
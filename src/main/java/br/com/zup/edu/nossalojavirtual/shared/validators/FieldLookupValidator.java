@@ -0,0 +1,108 @@
+package br.com.zup.edu.nossalojavirtual.shared.validators;
+
+import org.springframework.util.ReflectionUtils;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static java.lang.invoke.MethodType.methodType;
+import static java.util.Objects.requireNonNull;
+import static org.springframework.util.Assert.hasText;
+
+/**
+ * Rejects a field whose value exists, or does not exist, according to a lookup function.
+ * <p>
+ * The field getter is resolved once per class and field into a {@link MethodHandle} shared by every validator
+ * instance, so validators built in each {@code @InitBinder} call do not use reflection per request
+ *
+ * @param <T> class which will be validated
+ * @param <P> parameter type which will be validated
+ */
+abstract class FieldLookupValidator<T, P> implements Validator {
+
+    private static final ClassValue<ConcurrentMap<String, MethodHandle>> GETTERS = new ClassValue<>() {
+        @Override
+        protected ConcurrentMap<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final String field;
+    private final String errorCode;
+    private final String defaultMessage;
+    private final Class<? extends T> classToValidate;
+    private final Function<P, Boolean> existsFunction;
+    private final boolean mustExist;
+    private final MethodHandle getter;
+
+    /**
+     * @param mustExist true to reject values that do not exist, false to reject values that exist
+     * @throws IllegalArgumentException if the field does not exist or is inaccessible
+     */
+    FieldLookupValidator(String field,
+                         String errorCode,
+                         String defaultMessage,
+                         Class<? extends T> classToValidate,
+                         Function<P, Boolean> existsFunction,
+                         boolean mustExist) {
+
+        hasText(field, "field cannot be null");
+        requireNonNull(classToValidate, "classToValidate cannot be null");
+        requireNonNull(existsFunction, "exists cannot be null");
+
+        this.field = field;
+        this.errorCode = errorCode;
+        this.defaultMessage = defaultMessage;
+        this.classToValidate = classToValidate;
+        this.existsFunction = existsFunction;
+        this.mustExist = mustExist;
+        this.getter = GETTERS.get(classToValidate).computeIfAbsent(field, name -> getterOf(classToValidate, name));
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return classToValidate.isAssignableFrom(clazz);
+    }
+
+    /**
+     * @param target the object which will be validated
+     * @param errors the stored errors
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void validate(Object target, Errors errors) {
+        P fieldValue;
+        try {
+            fieldValue = (P) (Object) getter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (existsFunction.apply(fieldValue) != mustExist) {
+            errors.rejectValue(field, errorCode, defaultMessage);
+        }
+    }
+
+    private static MethodHandle getterOf(Class<?> type, String name) {
+        Field field = ReflectionUtils.findField(type, name);
+        if (field == null) {
+            throw new IllegalArgumentException(new NoSuchFieldException(name));
+        }
+
+        try {
+            return MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                    .unreflectGetter(field)
+                    .asType(methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package br.com.zup.edu.nossalojavirtual.shared.validators;
+
+import br.com.zup.edu.nossalojavirtual.shared.cache.ClockCache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Remembers, for a short time, the ids whose lookup found nothing, so repeated requests for unknown ids do not query.
+ * <p>
+ * The cache is a {@link ClockCache}, bounded and never locking on lookups, and {@link #invalidate} must be called when
+ * an id is inserted. A lookup that runs while an id is invalidated does not remember its result.
+ *
+ * @param <I> the id type
+ */
+public class NegativeLookupCache<I> {
+
+    private final long ttlNanos;
+    private final ClockCache<I, Long> unknownIds;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxSize how many unknown ids are remembered
+     * @param ttl     how long an unknown id is remembered
+     */
+    public NegativeLookupCache(int maxSize, Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.unknownIds = new ClockCache<>(maxSize);
+    }
+
+    /**
+     * @param id     the id to be found
+     * @param loader the query, not called when the id is known to be absent
+     * @return the loaded entity, empty if it does not exist
+     */
+    public <E> Optional<E> find(I id, Function<I, Optional<E>> loader) {
+        if (isKnownUnknown(id)) {
+            return Optional.empty();
+        }
+
+        long generation = invalidations.get();
+        Optional<E> entity = loader.apply(id);
+        if (entity.isEmpty()) {
+            remember(id, generation);
+        }
+        return entity;
+    }
+
+    /**
+     * @param id     the id to be checked
+     * @param exists the query, not called when the id is known to be absent
+     */
+    public boolean exists(I id, Predicate<I> exists) {
+        if (isKnownUnknown(id)) {
+            return false;
+        }
+
+        long generation = invalidations.get();
+        boolean found = exists.test(id);
+        if (!found) {
+            remember(id, generation);
+        }
+        return found;
+    }
+
+    /**
+     * forgets the id, must be called when it is inserted
+     */
+    public void invalidate(I id) {
+        invalidations.incrementAndGet();
+        unknownIds.remove(id);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups answered without querying, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public int getSize() {
+        return unknownIds.size();
+    }
+
+    private boolean isKnownUnknown(I id) {
+        if (id == null) {
+            return false;
+        }
+
+        Long expiresAt = unknownIds.get(id);
+        if (expiresAt != null) {
+            if (expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return true;
+            }
+            unknownIds.remove(id, expiresAt);
+        }
+
+        misses.increment();
+        return false;
+    }
+
+    private void remember(I id, long generation) {
+        if (id == null) {
+            return;
+        }
+
+        Long expiresAt = System.nanoTime() + ttlNanos;
+        unknownIds.put(id, expiresAt);
+
+        if (invalidations.get() != generation) {
+            unknownIds.remove(id, expiresAt);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.zup.edu.nossalojavirtual.shared.validators;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Entities loaded during the current request, so an {@link ObjectIsRegisteredValidator} can load the entity it checks
+ * and the controller can use it without querying the same row again.
+ * <p>
+ * The memoized entities stay managed while the request keeps its persistence context open (open session in view)
+ */
+@Component
+@RequestScope
+public class RequestEntityMemo {
+
+    private final Map<Class<?>, Map<Object, Optional<?>>> entities = new HashMap<>();
+
+    /**
+     * @param type   the entity class
+     * @param id     the entity id
+     * @param loader loads the entity when it was not loaded before in this request
+     * @return the entity loaded once per request, empty if it does not exist
+     */
+    @SuppressWarnings("unchecked")
+    public <E, I> Optional<E> find(Class<E> type, I id, Function<I, Optional<E>> loader) {
+        if (id == null) {
+            return Optional.empty();
+        }
+
+        Map<Object, Optional<?>> byId = entities.computeIfAbsent(type, key -> new HashMap<>());
+        Optional<?> entity = byId.get(id);
+        if (entity == null) {
+            entity = loader.apply(id);
+            byId.put(id, entity);
+        }
+
+        return (Optional<E>) entity;
+    }
+}
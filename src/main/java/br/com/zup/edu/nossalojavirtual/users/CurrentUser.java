@@ -0,0 +1,18 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the {@link User} of the {@code email} claim of the request JWT, see {@link CurrentUserArgumentResolver}.
+ * <p>
+ * The user may come from a cache, so it is detached: use it as a reference, do not navigate its lazy associations
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentUser {
+}
@@ -0,0 +1,55 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Resolves {@link CurrentUser} parameters through the {@link CurrentUserCache}
+ */
+@Component
+class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final CurrentUserCache currentUserCache;
+    private final UserRepository userRepository;
+
+    CurrentUserArgumentResolver(CurrentUserCache currentUserCache, UserRepository userRepository) {
+        this.currentUserCache = currentUserCache;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class) && User.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public User resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!(authentication instanceof JwtAuthenticationToken)) {
+            throw unauthenticated();
+        }
+
+        String email = ((JwtAuthenticationToken) authentication).getToken().getClaimAsString("email");
+        if (email == null) {
+            throw unauthenticated();
+        }
+
+        return currentUserCache.findByEmail(email, userRepository::findByEmail)
+                .orElseThrow(this::unauthenticated);
+    }
+
+    private ResponseStatusException unauthenticated() {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "usuário não autenticado");
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import br.com.zup.edu.nossalojavirtual.shared.cache.ClockCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of users by email, each entry expiring after {@code users.current-user-cache.ttl}. The users are
+ * kept in a {@link ClockCache}, so finding a cached user never locks.
+ * <p>
+ * Entries are also dropped when the user is changed, see {@link UserCacheInvalidator}. That only covers changes made
+ * by this node, other nodes see them once their entries expire. A user loaded while a user was being invalidated is not
+ * cached, it may be the old version.
+ * <p>
+ * It does not depend on {@link UserRepository} because the entity listener is created with the entity manager factory
+ */
+@Component
+public class CurrentUserCache {
+
+    private final long ttlNanos;
+    private final ClockCache<String, Entry> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    CurrentUserCache(@Value("${users.current-user-cache.max-size:10000}") int maxSize,
+                     @Value("${users.current-user-cache.ttl:PT5M}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new ClockCache<>(maxSize);
+    }
+
+    /**
+     * @param email  the email of the user
+     * @param loader finds the user when the cache has no valid entry, usually {@link UserRepository#findByEmail}
+     * @return the cached or loaded user
+     */
+    Optional<User> findByEmail(String email, Function<String, Optional<User>> loader) {
+        long now = System.nanoTime();
+
+        Entry cached = entries.get(email);
+        if (cached != null && now - cached.loadedAt < ttlNanos) {
+            hits.increment();
+            return Optional.of(cached.user);
+        }
+
+        misses.increment();
+        long generation = invalidations.get();
+        Optional<User> user = loader.apply(email);
+        user.ifPresent(found -> {
+            Entry loaded = new Entry(found, now);
+            entries.put(email, loaded);
+
+            if (invalidations.get() != generation) {
+                entries.remove(email, loaded);
+            }
+        });
+
+        return user;
+    }
+
+    void invalidate(String email) {
+        invalidations.incrementAndGet();
+        entries.remove(email);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many lookups went to the database
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static class Entry {
+
+        private final User user;
+        private final long loadedAt;
+
+        private Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
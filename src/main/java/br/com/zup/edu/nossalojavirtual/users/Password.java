@@ -1,6 +1,7 @@
 package br.com.zup.edu.nossalojavirtual.users;
 
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import javax.validation.constraints.NotNull;
 
@@ -8,16 +9,26 @@ import static java.util.Objects.requireNonNull;
 
 public class Password {
 
+    private static final PasswordEncoder DEFAULT_ENCODER = new BCryptPasswordEncoder();
+
     private final String password;
 
-    private Password(@NotNull String rawPassword) {
+    private Password(@NotNull String rawPassword, @NotNull PasswordEncoder encoder) {
         requireNonNull(rawPassword, "password must not be null");
 
-        this.password = new BCryptPasswordEncoder().encode(rawPassword);
+        this.password = encoder.encode(rawPassword);
     }
 
     public static Password encode(@NotNull String rawString) {
-        return new Password(rawString);
+        return new Password(rawString, DEFAULT_ENCODER);
+    }
+
+    /**
+     * @param rawString the password typed by the user
+     * @param encoder   the encoder configured by {@link PasswordHasher}
+     */
+    static Password encode(@NotNull String rawString, @NotNull PasswordEncoder encoder) {
+        return new Password(rawString, encoder);
     }
 
     public String get() {
@@ -0,0 +1,215 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Hashes passwords out of the request threads, in a pool sized to the cores with a bounded queue.
+ * <p>
+ * When the queue is full new passwords are refused with {@link PasswordHashingOverloadedException} instead of
+ * waiting, so a sign-up burst cannot take every servlet thread. Bulk callers like {@link UserImporter} use
+ * {@link #hashAll}, which keeps at most one password per thread of the pool queued, so sign-ups still find room
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder hashed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hashingNanos = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final HashRate rate = new HashRate();
+
+    PasswordHasher(@Value("${users.password-hashing.threads:0}") int threads,
+                   @Value("${users.password-hashing.queue-limit:64}") int queueLimit,
+                   @Value("${users.password-hashing.bcrypt-strength:10}") int strength) {
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, SECONDS,
+                new ArrayBlockingQueue<>(queueLimit),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @param rawPassword the password typed by the user
+     * @return the hashed password, completed by the hashing pool
+     * @throws PasswordHashingOverloadedException if the queue is full
+     */
+    public CompletableFuture<Password> hash(String rawPassword) {
+        long queuedAt = System.nanoTime();
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long waited = System.nanoTime() - queuedAt;
+                queueWaitNanos.add(waited);
+                maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+
+                return hashNow(rawPassword);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            int queued = executor.getQueue().size();
+            throw new PasswordHashingOverloadedException(queued, timeToDrain(queued));
+        }
+    }
+
+    /**
+     * hashes the passwords on the pool, waiting for room instead of refusing them, the calling thread hashes a password
+     * itself when the queue is full
+     *
+     * @return the hashed passwords, in the same order
+     */
+    List<Password> hashAll(List<String> rawPasswords) {
+        Semaphore inFlight = new Semaphore(executor.getMaximumPoolSize());
+        List<CompletableFuture<Password>> hashes = new ArrayList<>(rawPasswords.size());
+
+        try {
+            for (String rawPassword : rawPasswords) {
+                inFlight.acquire();
+
+                CompletableFuture<Password> hash;
+                try {
+                    hash = CompletableFuture.supplyAsync(() -> hashNow(rawPassword), executor);
+                } catch (RejectedExecutionException e) {
+                    hash = CompletableFuture.completedFuture(hashNow(rawPassword));
+                }
+
+                hash.whenComplete((password, e) -> inFlight.release());
+                hashes.add(hash);
+            }
+
+            List<Password> passwords = new ArrayList<>(hashes.size());
+            for (CompletableFuture<Password> hash : hashes) {
+                passwords.add(hash.join());
+            }
+            return passwords;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while hashing passwords", e);
+        } catch (CompletionException e) {
+            throw new IllegalStateException("could not hash passwords", e.getCause());
+        }
+    }
+
+    private Password hashNow(String rawPassword) {
+        long start = System.nanoTime();
+        Password password = Password.encode(rawPassword, encoder);
+        hashingNanos.add(System.nanoTime() - start);
+        hashed.increment();
+        rate.record();
+
+        return password;
+    }
+
+    /**
+     * @return how long the pool takes to hash the queued passwords, from the average hashing time
+     */
+    private Duration timeToDrain(int queued) {
+        long count = hashed.sum();
+        if (count == 0) {
+            return Duration.ZERO;
+        }
+
+        return Duration.ofNanos(hashingNanos.sum() / count * queued / executor.getMaximumPoolSize());
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getHashed() {
+        return hashed.sum();
+    }
+
+    /**
+     * @return how many passwords were refused because the queue was full
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return how many passwords were hashed in the last full second
+     */
+    public long getHashesPerSecond() {
+        return rate.lastSecond();
+    }
+
+    /**
+     * @return the average time a password waited in the queue, in microseconds
+     */
+    public long getAverageQueueWaitMicros() {
+        long count = hashed.sum();
+        return count == 0 ? 0 : NANOSECONDS.toMicros(queueWaitNanos.sum() / count);
+    }
+
+    /**
+     * @return the longest time a password waited in the queue, in microseconds
+     */
+    public long getMaxQueueWaitMicros() {
+        return NANOSECONDS.toMicros(maxQueueWaitNanos.get());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Counts hashes in one second windows, hashing is slow enough for a lock per hash
+     */
+    private static class HashRate {
+
+        private long currentSecond;
+        private long currentCount;
+        private long lastSecondCount;
+
+        private synchronized void record() {
+            roll();
+            currentCount++;
+        }
+
+        private synchronized long lastSecond() {
+            roll();
+            return lastSecondCount;
+        }
+
+        private void roll() {
+            long second = NANOSECONDS.toSeconds(System.nanoTime());
+            if (second == currentSecond) {
+                return;
+            }
+
+            lastSecondCount = second == currentSecond + 1 ? currentCount : 0;
+            currentSecond = second;
+            currentCount = 0;
+        }
+    }
+}
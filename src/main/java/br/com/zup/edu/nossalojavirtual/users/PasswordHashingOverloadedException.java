@@ -0,0 +1,27 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the {@link PasswordHasher} queue is full and a new password cannot be hashed now
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    /**
+     * @param queued     the passwords waiting to be hashed
+     * @param retryAfter the time the pool takes to hash them
+     */
+    PasswordHashingOverloadedException(int queued, Duration retryAfter) {
+        super("password hashing is overloaded, " + queued + " password(s) waiting");
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the time to wait before the next request, in whole seconds rounded up
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, retryAfter.plusMillis(999).getSeconds());
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import br.com.zup.edu.nossalojavirtual.shared.validators.BloomFilter;
+import br.com.zup.edu.nossalojavirtual.shared.validators.BloomFilteredLookup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of the registered emails, so signing up with a new email does not query the users table.
+ * <p>
+ * It is filled at startup and by {@link RegisteredEmailsListener} and {@link UserImporter} on every insert. Deleted
+ * users stay in the filter until the next restart, they only make the lookup run.
+ */
+@Component
+public class RegisteredEmails {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegisteredEmails.class);
+
+    private final ObjectProvider<UserRepository> userRepository;
+    private final BloomFilteredLookup lookup;
+
+    RegisteredEmails(ObjectProvider<UserRepository> userRepository,
+                     @Value("${users.email-bloom-filter.enabled:true}") boolean enabled,
+                     @Value("${users.email-bloom-filter.expected-insertions:1000000}") long expectedInsertions,
+                     @Value("${users.email-bloom-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.lookup = new BloomFilteredLookup(new BloomFilter(expectedInsertions, falsePositiveRate),
+                email -> userRepository.getObject().existsByEmail(email),
+                enabled);
+    }
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try (Stream<String> emails = userRepository.getObject().streamAllEmails()) {
+            lookup.load(emails);
+        }
+
+        BloomFilter filter = lookup.getFilter();
+        LOG.info("[USER] Loaded {} email(s) in a bloom filter of {} bytes with {} hash functions",
+                filter.getInserted(), filter.getMemoryBytes(), filter.getHashFunctions());
+    }
+
+    boolean isRegistered(String email) {
+        return lookup.apply(email);
+    }
+
+    /**
+     * @return false only when the email is surely not registered, without querying
+     */
+    boolean mightBeRegistered(String email) {
+        return lookup.mightExist(email);
+    }
+
+    void add(String email) {
+        lookup.add(email);
+    }
+
+    public BloomFilteredLookup getLookup() {
+        return lookup;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+
+/**
+ * Entity listener of {@link User} that adds every new email to the {@link RegisteredEmails} filter
+ */
+@Component
+class RegisteredEmailsListener {
+
+    private final RegisteredEmails registeredEmails;
+
+    RegisteredEmailsListener(RegisteredEmails registeredEmails) {
+        this.registeredEmails = registeredEmails;
+    }
+
+    @PostPersist
+    void add(User user) {
+        registeredEmails.add(user.getUsername());
+    }
+}
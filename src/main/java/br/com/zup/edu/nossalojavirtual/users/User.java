@@ -15,6 +15,7 @@ import static javax.persistence.GenerationType.IDENTITY;
 
 @Table(name = "users")
 @Entity
+@EntityListeners({UserCacheInvalidator.class, RegisteredEmailsListener.class})
 public class User {
 
     @Id
@@ -0,0 +1,27 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener of {@link User} that drops the changed user from the {@link CurrentUserCache}
+ */
+@Component
+class UserCacheInvalidator {
+
+    private final CurrentUserCache currentUserCache;
+
+    UserCacheInvalidator(CurrentUserCache currentUserCache) {
+        this.currentUserCache = currentUserCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void invalidate(User user) {
+        currentUserCache.invalidate(user.getUsername());
+    }
+}
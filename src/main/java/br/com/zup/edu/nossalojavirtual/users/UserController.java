@@ -1,34 +1,68 @@
 package br.com.zup.edu.nossalojavirtual.users;
 
 import br.com.zup.edu.nossalojavirtual.shared.validators.UniqueFieldValidator;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME;
 
 import static org.springframework.http.ResponseEntity.created;
+import static org.springframework.http.ResponseEntity.ok;
 
 @RestController
 @RequestMapping("/api/users")
 class UserController {
 
     private final UserRepository userRepository;
+    private final PasswordHasher passwordHasher;
+    private final UserImporter userImporter;
+    private final RegisteredEmails registeredEmails;
+    private final Executor applicationTaskExecutor;
 
-    UserController(UserRepository userRepository) {
+    UserController(UserRepository userRepository,
+                   PasswordHasher passwordHasher,
+                   UserImporter userImporter,
+                   RegisteredEmails registeredEmails,
+                   @Qualifier(APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor applicationTaskExecutor) {
         this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.userImporter = userImporter;
+        this.registeredEmails = registeredEmails;
+        this.applicationTaskExecutor = applicationTaskExecutor;
     }
 
+    /**
+     * The password is hashed by {@link PasswordHasher}, the request thread is released while it waits. The user is
+     * saved on the application task executor, so the hashing pool never waits on the database
+     */
     @PostMapping
-    ResponseEntity<?> createUser(@RequestBody @Valid NewUserRequest newUser) {
-        Password password = Password.encode(newUser.getPassword());
-        var user = new User(newUser.getLogin(), password);
+    CompletableFuture<ResponseEntity<?>> createUser(@RequestBody @Valid NewUserRequest newUser) {
+        return passwordHasher.hash(newUser.getPassword())
+                .thenApplyAsync(password -> {
+                    var user = new User(newUser.getLogin(), password);
+
+                    userRepository.save(user);
 
-        userRepository.save(user);
+                    URI location = URI.create("/api/users/" + user.getId());
+                    return created(location).build();
+                }, applicationTaskExecutor);
+    }
 
-        URI location = URI.create("/api/users/" + user.getId());
-        return created(location).build();
+    /**
+     * Creates the users of an NDJSON body, one {@link NewUserRequest} per line, see {@link UserImporter}
+     */
+    @PostMapping(path = "/import", consumes = "application/x-ndjson")
+    ResponseEntity<?> importUsers(HttpServletRequest request) throws IOException {
+        return ok(userImporter.importFrom(request.getInputStream()));
     }
 
     @InitBinder(value = {"newUserRequest"})
@@ -38,7 +72,7 @@ class UserController {
                 new UniqueFieldValidator<NewUserRequest, String>("login",
                         "user.login.alreadyRegistered",
                         NewUserRequest.class,
-                        userRepository::existsByEmail));
+                        registeredEmails::isRegistered));
     }
 
 }
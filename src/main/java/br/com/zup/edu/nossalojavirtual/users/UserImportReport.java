@@ -0,0 +1,74 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a {@link UserImporter} run: how many lines became users and why the others did not
+ */
+class UserImportReport {
+
+    private final int maxErrors;
+    private long imported;
+    private long failed;
+    private final List<LineError> errors = new ArrayList<>();
+
+    UserImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    void imported(int count) {
+        imported += count;
+    }
+
+    void failed(long line, String message) {
+        failed(line, List.of(message));
+    }
+
+    /**
+     * @param messages every reason of a single failed line, the line is counted once
+     */
+    void failed(long line, List<String> messages) {
+        failed++;
+        for (String message : messages) {
+            if (errors.size() == maxErrors) {
+                return;
+            }
+            errors.add(new LineError(line, message));
+        }
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the errors of the first failed lines, up to {@code users.import.max-reported-errors}
+     */
+    public List<LineError> getErrors() {
+        return errors;
+    }
+
+    static class LineError {
+
+        private final long line;
+        private final String message;
+
+        private LineError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
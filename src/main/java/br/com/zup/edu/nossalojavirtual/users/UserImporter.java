@@ -0,0 +1,205 @@
+package br.com.zup.edu.nossalojavirtual.users;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Creates users from an NDJSON stream of {@link NewUserRequest}, one per line.
+ * <p>
+ * Lines are read in chunks: each chunk is validated, checked against the registered emails with a single query,
+ * hashed in parallel by {@link PasswordHasher} and inserted with JDBC batches in its own transaction. A line that cannot be imported is
+ * reported and does not stop the others.
+ */
+@Component
+class UserImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserImporter.class);
+
+    private static final String LOGIN_ALREADY_REGISTERED = "O campo login já está cadastrado";
+
+    private static final String INSERT = "insert into users (user_email, user_password, created_at) values (?, ?, ?)";
+
+    private final UserRepository userRepository;
+    private final PasswordHasher passwordHasher;
+    private final RegisteredEmails registeredEmails;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper mapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    UserImporter(UserRepository userRepository,
+                 PasswordHasher passwordHasher,
+                 RegisteredEmails registeredEmails,
+                 JdbcTemplate jdbcTemplate,
+                 TransactionTemplate transactionTemplate,
+                 ObjectMapper mapper,
+                 Validator validator,
+                 @Value("${users.import.chunk-size:1000}") int chunkSize,
+                 @Value("${users.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.registeredEmails = registeredEmails;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.mapper = mapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    UserImportReport importFrom(InputStream ndjson) throws IOException {
+        UserImportReport report = new UserImportReport(maxReportedErrors);
+        Set<String> seenEmails = new HashSet<>();
+        List<ImportLine> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, UTF_8))) {
+            String content;
+            long lineNumber = 0;
+
+            while ((content = reader.readLine()) != null) {
+                lineNumber++;
+                if (content.isBlank()) {
+                    continue;
+                }
+
+                parse(lineNumber, content, seenEmails, report).ifPresent(chunk::add);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+
+        LOG.info("[USER] [IMPORT] Imported {} user(s), {} line(s) failed", report.getImported(), report.getFailed());
+        return report;
+    }
+
+    private Optional<ImportLine> parse(long lineNumber, String content, Set<String> seenEmails, UserImportReport report) {
+        NewUserRequest request;
+        try {
+            request = mapper.readValue(content, NewUserRequest.class);
+        } catch (JsonProcessingException e) {
+            report.failed(lineNumber, "linha não é um JSON válido");
+            return Optional.empty();
+        }
+
+        Set<ConstraintViolation<NewUserRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            report.failed(lineNumber, violations.stream()
+                    .map(violation -> format("O campo %s %s", violation.getPropertyPath(), violation.getMessage()))
+                    .collect(toList()));
+            return Optional.empty();
+        }
+
+        if (!seenEmails.add(request.getLogin())) {
+            report.failed(lineNumber, "O campo login está repetido na importação");
+            return Optional.empty();
+        }
+
+        return Optional.of(new ImportLine(lineNumber, request));
+    }
+
+    private void importChunk(List<ImportLine> chunk, UserImportReport report) {
+        Set<String> maybeRegistered = chunk.stream()
+                .map(line -> line.request.getLogin())
+                .filter(registeredEmails::mightBeRegistered)
+                .collect(toSet());
+        Set<String> registered = maybeRegistered.isEmpty() ? Set.of() : userRepository.findEmailsIn(maybeRegistered);
+
+        List<ImportLine> accepted = new ArrayList<>(chunk.size());
+        for (ImportLine line : chunk) {
+            if (registered.contains(line.request.getLogin())) {
+                report.failed(line.number, LOGIN_ALREADY_REGISTERED);
+            } else {
+                accepted.add(line);
+            }
+        }
+
+        hash(accepted);
+        insert(accepted, report);
+    }
+
+    private void hash(List<ImportLine> lines) {
+        List<Password> passwords = passwordHasher.hashAll(lines.stream()
+                .map(line -> line.request.getPassword())
+                .collect(toList()));
+
+        for (int i = 0; i < lines.size(); i++) {
+            lines.get(i).password = passwords.get(i);
+        }
+    }
+
+    private void insert(List<ImportLine> lines, UserImportReport report) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // added before inserting: a rolled back line is only a false positive, a missing one would be a false negative
+        lines.forEach(line -> registeredEmails.add(line.request.getLogin()));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, lines, lines.size(),
+                    (statement, line) -> {
+                        statement.setString(1, line.request.getLogin());
+                        statement.setString(2, line.password.get());
+                        statement.setTimestamp(3, now);
+                    }));
+            report.imported(lines.size());
+        } catch (DataIntegrityViolationException e) {
+            // someone registered one of these emails meanwhile, the chunk is inserted again line by line
+            insertOneByOne(lines, report, now);
+        }
+    }
+
+    private void insertOneByOne(List<ImportLine> lines, UserImportReport report, Timestamp now) {
+        for (ImportLine line : lines) {
+            try {
+                jdbcTemplate.update(INSERT, line.request.getLogin(), line.password.get(), now);
+                report.imported(1);
+            } catch (DataIntegrityViolationException e) {
+                report.failed(line.number, LOGIN_ALREADY_REGISTERED);
+            }
+        }
+    }
+
+    private static class ImportLine {
+
+        private final long number;
+        private final NewUserRequest request;
+        private Password password;
+
+        private ImportLine(long number, NewUserRequest request) {
+            this.number = number;
+            this.request = request;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package br.com.zup.edu.nossalojavirtual.users;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface UserRepository extends Repository<User, Long> {
 
@@ -13,6 +18,15 @@ public interface UserRepository extends Repository<User, Long> {
 
     Optional<User> findByEmail(String email);
 
+    /**
+     * @return which of the given emails are already registered
+     */
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findEmailsIn(@Param("emails") Collection<String> emails);
+
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
     Optional<User> findById(Long id);
 
     void deleteAll();
@@ -0,0 +1,127 @@
+package br.com.zup.edu.nossalojavirtual;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingJwtDecoderTest {
+
+    private static final Instant NOW = Instant.parse("2022-09-01T10:00:00Z");
+
+    private final MovingClock clock = new MovingClock(NOW);
+    private final AtomicInteger verified = new AtomicInteger();
+
+    @DisplayName("deve devolver o token em cache sem verificar a assinatura de novo")
+    @Test
+    void teste01() {
+
+        CachingJwtDecoder decoder = new CachingJwtDecoder(expiringIn(Duration.ofMinutes(5)), 10, clock);
+
+        Jwt first = decoder.decode("token");
+        Jwt second = decoder.decode("token");
+
+        assertSame(first, second);
+        assertEquals(1, verified.get());
+        assertEquals(1, decoder.getHits());
+        assertEquals(1, decoder.getMisses());
+    }
+
+    @DisplayName("deve verificar de novo um token que expirou no cache")
+    @Test
+    void teste02() {
+
+        CachingJwtDecoder decoder = new CachingJwtDecoder(expiringIn(Duration.ofMinutes(5)), 10, clock);
+
+        decoder.decode("token");
+        clock.advance(Duration.ofMinutes(5));
+        decoder.decode("token");
+
+        assertEquals(2, verified.get());
+        assertEquals(0, decoder.getHits());
+        assertEquals(2, decoder.getMisses());
+    }
+
+    @DisplayName("não deve guardar em cache um token inválido")
+    @Test
+    void teste03() {
+
+        JwtDecoder rejecting = token -> {
+            verified.incrementAndGet();
+            throw new BadJwtException("assinatura inválida");
+        };
+        CachingJwtDecoder decoder = new CachingJwtDecoder(rejecting, 10, clock);
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("token"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("token"));
+
+        assertEquals(2, verified.get());
+        assertEquals(0, decoder.getHits());
+    }
+
+    @DisplayName("não deve guardar em cache um token sem expiração")
+    @Test
+    void teste04() {
+
+        JwtDecoder withoutExpiration = token -> {
+            verified.incrementAndGet();
+            return Jwt.withTokenValue(token).header("alg", "RS256").subject("daniel").build();
+        };
+        CachingJwtDecoder decoder = new CachingJwtDecoder(withoutExpiration, 10, clock);
+
+        decoder.decode("token");
+        decoder.decode("token");
+
+        assertEquals(2, verified.get());
+    }
+
+    private JwtDecoder expiringIn(Duration lifetime) {
+        return token -> {
+            verified.incrementAndGet();
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("daniel")
+                    .issuedAt(NOW)
+                    .expiresAt(NOW.plus(lifetime))
+                    .build();
+        };
+    }
+
+    private static class MovingClock extends Clock {
+
+        private Instant instant;
+
+        private MovingClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+@ActiveProfiles("tests")
+@TestPropertySource(properties = "photos.thumbnails.max-cache-size=1B")
+class PhotoControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    @Autowired
+    private PhotoThumbnails photoThumbnails;
+
+    private byte[] image;
+    private StoredPhoto photo;
+
+    @BeforeEach
+    void setup() throws IOException {
+        BufferedImage bufferedImage = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = bufferedImage.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, 300, 200);
+        graphics.dispose();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "png", bytes);
+        image = bytes.toByteArray();
+
+        photo = photoStore.write(new ByteArrayInputStream(image));
+    }
+
+    @AfterEach
+    void tearDown() {
+        photoStore.discard(photo.getHash());
+    }
+
+    @DisplayName("deve servir uma foto sem autenticação com cache permanente")
+    @Test
+    void teste01() throws Exception {
+
+        byte[] served = mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}", photo.getHash()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("ETag", "\"" + photo.getHash() + "\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().longValue("Content-Length", image.length))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        assertArrayEquals(image, served);
+    }
+
+    @DisplayName("não deve enviar a foto de novo quando o cliente já tem o mesmo ETag")
+    @Test
+    void teste02() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}", photo.getHash())
+                        .header("If-None-Match", "\"outra\", \"" + photo.getHash() + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @DisplayName("deve servir apenas o intervalo de bytes pedido")
+    @Test
+    void teste03() throws Exception {
+
+        byte[] served = mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}", photo.getHash())
+                        .header("Range", "bytes=8-15"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 8-15/" + image.length))
+                .andExpect(header().longValue("Content-Length", 8))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        assertArrayEquals(Arrays.copyOfRange(image, 8, 16), served);
+    }
+
+    @DisplayName("deve recusar um intervalo de bytes além do fim da foto")
+    @Test
+    void teste04() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}", photo.getHash())
+                        .header("Range", "bytes=" + image.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */" + image.length));
+    }
+
+    @DisplayName("deve servir a foto inteira quando o If-Range não corresponde à foto")
+    @Test
+    void teste05() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}", photo.getHash())
+                        .header("Range", "bytes=0-9")
+                        .header("If-Range", "\"outra\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(image));
+    }
+
+    @DisplayName("não deve encontrar fotos inexistentes ou com hash inválido")
+    @Test
+    void teste06() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}", "0".repeat(64)))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}", "nao-e-um-hash"))
+                .andExpect(status().isNotFound());
+    }
+
+    @DisplayName("deve servir uma miniatura da foto gerada uma única vez")
+    @Test
+    void teste07() throws Exception {
+
+        byte[] thumbnail = mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}/{size}", photo.getHash(), 64))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(header().string("ETag", "\"" + photo.getHash() + "-64\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        BufferedImage resized = ImageIO.read(new ByteArrayInputStream(thumbnail));
+        assertEquals(64, resized.getWidth());
+        assertEquals(43, resized.getHeight());
+
+        long hits = photoThumbnails.getHits();
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}/{size}", photo.getHash(), 64))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(thumbnail));
+
+        assertEquals(hits + 1, photoThumbnails.getHits());
+    }
+
+    @DisplayName("não deve servir miniaturas de tamanhos não suportados ou de fotos inexistentes")
+    @Test
+    void teste08() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}/{size}", photo.getHash(), 100))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}/{size}", "0".repeat(64), 64))
+                .andExpect(status().isNotFound());
+    }
+
+    @DisplayName("deve apagar a miniatura mais antiga ao passar do tamanho do cache e gerá-la de novo no próximo pedido")
+    @Test
+    void teste09() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}/{size}", photo.getHash(), 64))
+                .andExpect(status().isOk());
+
+        long renders = photoThumbnails.getRenders();
+        long evictions = photoThumbnails.getEvictions();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}/{size}", photo.getHash(), 256))
+                .andExpect(status().isOk());
+
+        assertEquals(renders + 1, photoThumbnails.getRenders());
+        assertEquals(evictions + 1, photoThumbnails.getEvictions());
+        assertFalse(Files.exists(thumbnailOf(64)));
+        assertEquals(Files.size(thumbnailOf(256)), photoThumbnails.getCachedBytes());
+
+        byte[] thumbnail = mockMvc.perform(MockMvcRequestBuilders.get("/photos/{hash}/{size}", photo.getHash(), 64))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        assertEquals(renders + 2, photoThumbnails.getRenders());
+        assertEquals(evictions + 2, photoThumbnails.getEvictions());
+        assertFalse(Files.exists(thumbnailOf(256)));
+        assertTrue(Files.exists(thumbnailOf(64)));
+        assertEquals(thumbnail.length, photoThumbnails.getCachedBytes());
+        assertEquals(64, ImageIO.read(new ByteArrayInputStream(thumbnail)).getWidth());
+    }
+
+    private Path thumbnailOf(int size) {
+        String hash = photo.getHash();
+        return Path.of("target/photo-thumbnails", hash.substring(0, 2), hash.substring(2, 4), hash + "-" + size);
+    }
+}
@@ -24,12 +24,22 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import javax.transaction.Transactional;
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
@@ -46,6 +56,10 @@ class ProductControllerTest {
     @Autowired
     private UserRepository userRepository;
     @Autowired
+    private PhotoBlobRepository photoBlobRepository;
+    @Autowired
+    private PhotoStore photoStore;
+    @Autowired
     private MockMvc mockMvc;
     @Autowired
     private ObjectMapper mapper;
@@ -62,7 +76,7 @@ class ProductControllerTest {
 
 
     @BeforeEach
-    void setup() {
+    void setup() throws IOException {
 
         productRepository.deleteAll();
         userRepository.deleteAll();
@@ -75,8 +89,8 @@ class ProductControllerTest {
         categoryRepository.save(category);
 
         photos = List.of(
-                "foto numero 1",
-                "foto numero 2"
+                base64Png(Color.GREEN),
+                base64Png(Color.YELLOW)
         );
 
         characteristicList = List.of(
@@ -239,5 +253,76 @@ class ProductControllerTest {
         return "a".repeat(1001);
     }
 
+    @DisplayName("deve armazenar uma única vez as fotos iguais de produtos diferentes")
+    @Test
+    void teste06() throws Exception {
+
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(Base64.getDecoder().decode(photos.get(0))));
+        long referencesBefore = photoBlobRepository.findById(hash)
+                .map(PhotoBlob::getReferenceCount)
+                .orElse(0L);
+
+        for (String name : List.of("Toalha", "Toalha de rosto")) {
+            NewProductRequest newProductRequest = new NewProductRequest(name, new BigDecimal("15.00"), 5,
+                    List.of(photos.get(0)), characteristicList, "toalha macia", category.getId());
 
-}
\ No newline at end of file
+            MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/products")
+                    .with(jwt().jwt(jwt -> {
+                        jwt.claim("email", user.getUsername());
+                    }).authorities(new SimpleGrantedAuthority("SCOPE_products:write")))
+                    .content(mapper.writeValueAsString(newProductRequest))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Accept-Language", "pt-br");
+
+            mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isCreated());
+        }
+
+        assertEquals(referencesBefore + 2, photoBlobRepository.findById(hash).get().getReferenceCount());
+        assertArrayEquals(Base64.getDecoder().decode(photos.get(0)), Files.readAllBytes(photoStore.pathOf(hash)));
+
+        productRepository.deleteAll();
+    }
+
+    @DisplayName("não deve cadastrar um produto com fotos que não são imagens")
+    @Test
+    void teste07() throws Exception {
+
+        List<String> photosWithText = List.of(photos.get(0),
+                Base64.getEncoder().encodeToString("não sou uma imagem".getBytes(StandardCharsets.UTF_8)));
+
+        NewProductRequest newProductRequest = new NewProductRequest("Toalha", new BigDecimal("15.00"), 5,
+                photosWithText, characteristicList, "toalha macia", category.getId());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/products")
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_products:write")))
+                .content(mapper.writeValueAsString(newProductRequest))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Accept-Language", "pt-br");
+
+        String response = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andReturn()
+                .getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        MensagemDeErro mensagemDeErro = mapper.readValue(response, MensagemDeErro.class);
+
+        MatcherAssert.assertThat(mensagemDeErro.getMensagens(), Matchers.contains(
+                "O campo photos deve conter apenas imagens PNG, JPEG ou GIF"));
+        assertEquals(0, productRepository.findAll().size());
+    }
+
+    private static String base64Png(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 16, 16);
+        graphics.dispose();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+}
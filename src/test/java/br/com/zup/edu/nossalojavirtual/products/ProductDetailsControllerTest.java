@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 
@@ -131,6 +133,30 @@ class ProductDetailsControllerTest {
         mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
+    @DisplayName("deve listar as miniaturas das fotos dos outros produtos do vendedor")
+    @Test
+    void teste04() throws Exception {
+
+        String hash = "a".repeat(64);
+        PreProduct otherPreProduct = new PreProduct(user, category, "Roupão", BigDecimal.TEN, 5, "Roupão macio");
+        productRepository.save(new Product(otherPreProduct, List.of(new Photo("http://localhost:8080/photos/" + hash)),
+                characteristicList));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/products/{id}", product.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_products:read")));
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.photoThumbnails", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.photoThumbnails[0]", anEmptyMap()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.sellerOtherProducts[0].photo.url").value("http://localhost:8080/photos/" + hash))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.sellerOtherProducts[0].thumbnails.64").value("http://localhost:8080/photos/" + hash + "/64"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.sellerOtherProducts[0].thumbnails.256").value("http://localhost:8080/photos/" + hash + "/256"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.sellerOtherProducts[0].thumbnails.1024").value("http://localhost:8080/photos/" + hash + "/1024"));
+    }
+
 
 
 
@@ -211,6 +211,27 @@ class ProductOpinionControllerTest {
     }
 
 
+    @DisplayName("deve limitar a quantidade de opiniões dadas para um produto")
+    @Test
+    void teste06() throws Exception {
+
+        String payload = mapper.writeValueAsString(new NewOpinionRequest(4, "Feedback Toalha", "a cor desbotou", product.getId()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/opinions")
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_products:write")))
+                .content(payload)
+                .contentType(MediaType.APPLICATION_JSON).header("Accept-Language", "pt-br");
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isCreated());
+        }
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().exists("Retry-After"));
+    }
+
     private String gera501caracteres() {
         return "a".repeat(501);
     }
@@ -0,0 +1,172 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.exception.MensagemDeErro;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+@ActiveProfiles("tests")
+class ProductPhotoControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    private User seller;
+    private User otherUser;
+    private Product product;
+
+    @BeforeEach
+    void setup() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        seller = userRepository.save(new User("vendedor@email.com", Password.encode("123456")));
+        otherUser = userRepository.save(new User("outro@email.com", Password.encode("123456")));
+        Category category = categoryRepository.save(new Category("Banho"));
+
+        PreProduct preProduct = new PreProduct(seller, category, "Toalha", BigDecimal.TEN, 5, "Toalha grande");
+        product = productRepository.save(new Product(preProduct,
+                List.of(new Photo("http://localhost:8080/photos/foto")),
+                Set.of(new Characteristic("cor", "branca"),
+                        new Characteristic("tamanho", "grande"),
+                        new Characteristic("peso", "500g"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @DisplayName("deve adicionar fotos ao produto")
+    @Test
+    void teste01() throws Exception {
+        byte[] red = png(Color.RED);
+        byte[] blue = png(Color.BLUE);
+
+        MockHttpServletRequestBuilder request = multipart("/api/products/{id}/photos", product.getId())
+                .file(new MockMultipartFile("photos", "vermelha.png", "image/png", red))
+                .file(new MockMultipartFile("photos", "azul.png", "image/png", blue))
+                .with(jwt().jwt(jwt -> jwt.claim("email", seller.getUsername()))
+                        .authorities(new SimpleGrantedAuthority("SCOPE_products:write")));
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<String> urls = mapper.readValue(response, new TypeReference<>() {
+        });
+
+        assertEquals(List.of("http://localhost:8080/photos/foto",
+                "http://localhost:8080/photos/" + sha256(red),
+                "http://localhost:8080/photos/" + sha256(blue)), urls);
+        assertArrayEquals(red, Files.readAllBytes(photoStore.pathOf(sha256(red))));
+        assertArrayEquals(blue, Files.readAllBytes(photoStore.pathOf(sha256(blue))));
+    }
+
+    @DisplayName("não deve adicionar fotos ao produto de outro vendedor")
+    @Test
+    void teste02() throws Exception {
+        MockHttpServletRequestBuilder request = multipart("/api/products/{id}/photos", product.getId())
+                .file(new MockMultipartFile("photos", "vermelha.png", "image/png", png(Color.RED)))
+                .with(jwt().jwt(jwt -> jwt.claim("email", otherUser.getUsername()))
+                        .authorities(new SimpleGrantedAuthority("SCOPE_products:write")));
+
+        mockMvc.perform(request).andExpect(status().isForbidden());
+    }
+
+    @DisplayName("não deve adicionar fotos a um produto inexistente")
+    @Test
+    void teste03() throws Exception {
+        MockHttpServletRequestBuilder request = multipart("/api/products/{id}/photos", UUID.randomUUID())
+                .file(new MockMultipartFile("photos", "vermelha.png", "image/png", png(Color.RED)))
+                .with(jwt().jwt(jwt -> jwt.claim("email", seller.getUsername()))
+                        .authorities(new SimpleGrantedAuthority("SCOPE_products:write")));
+
+        mockMvc.perform(request).andExpect(status().isNotFound());
+    }
+
+    @DisplayName("não deve adicionar arquivos que não são imagens")
+    @Test
+    void teste04() throws Exception {
+        MockHttpServletRequestBuilder request = multipart("/api/products/{id}/photos", product.getId())
+                .file(new MockMultipartFile("photos", "notas.txt", "text/plain", "não é uma foto".getBytes(StandardCharsets.UTF_8)))
+                .with(jwt().jwt(jwt -> jwt.claim("email", seller.getUsername()))
+                        .authorities(new SimpleGrantedAuthority("SCOPE_products:write")));
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        MensagemDeErro mensagemDeErro = mapper.readValue(response, MensagemDeErro.class);
+        assertEquals(List.of("O campo photos deve conter apenas imagens não vazias"), mensagemDeErro.getMensagens());
+    }
+
+    private static byte[] png(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 32, 32);
+        graphics.dispose();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -3,6 +3,7 @@ package br.com.zup.edu.nossalojavirtual.products;
 import br.com.zup.edu.nossalojavirtual.categories.Category;
 import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
 import br.com.zup.edu.nossalojavirtual.exception.MensagemDeErro;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailAuditLog;
 import br.com.zup.edu.nossalojavirtual.shared.email.EmailRepository;
 import br.com.zup.edu.nossalojavirtual.users.Password;
 import br.com.zup.edu.nossalojavirtual.users.User;
@@ -10,6 +11,7 @@ import br.com.zup.edu.nossalojavirtual.users.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -51,6 +53,8 @@ class QuestionControllerTest {
     private UserRepository userRepository;
     @Autowired
     private EmailRepository emailRepository;
+    @Autowired
+    private EmailAuditLog emailAuditLog;
 
     @Autowired
     private CategoryRepository categoryRepository;
@@ -101,6 +105,12 @@ class QuestionControllerTest {
     }
 
 
+    @AfterEach
+    void tearDown() {
+        emailRepository.deleteAll();
+        questionRepository.deleteAll();
+    }
+
     @DisplayName("deve cadastrar uma nova pergunta")
     @Test
     void teste01() throws Exception {
@@ -120,10 +130,15 @@ class QuestionControllerTest {
                 .contentType(MediaType.APPLICATION_JSON).header("Accept-Language", "pt-br");
 
         mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isCreated())
-                .andExpect(MockMvcResultMatchers.redirectedUrlPattern("/api/products/*/questions/*"));
+                .andExpect(MockMvcResultMatchers.redirectedUrlPattern("/api/products/*/questions/*"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.question.title").value("Qual a validade?"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.questionCount").value(1));
 
         assertEquals(1, questionRepository.findAll().size());
 
+        emailAuditLog.flush();
+        assertEquals(1, emailRepository.count());
+
 
     }
 
@@ -214,5 +229,68 @@ class QuestionControllerTest {
 
     }
 
+    @DisplayName("deve listar as perguntas de um produto paginadas, das mais novas para as mais antigas")
+    @Test
+    void teste06() throws Exception {
+        questionRepository.save(new Question("Qual a validade?", user, product));
+        questionRepository.save(new Question("Qual o material?", user, product));
+        questionRepository.save(new Question("Tem outras cores?", user, product));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(
+                        "/api/products/{id}/questions", product.getId().toString()
+                )
+                .param("page", "0")
+                .param("size", "2")
+                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_products:read")))
+                .header("Accept-Language", "pt-br");
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.questions.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.questions[0].title").value("Tem outras cores?"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalQuestions").value(3));
+    }
+
+    @DisplayName("deve buscar as perguntas de um produto pelo título, ignorando acentos")
+    @Test
+    void teste07() throws Exception {
+        questionRepository.save(new Question("Vocês entregam em Manaus?", user, product));
+        questionRepository.save(new Question("Qual o prazo de entrega?", user, product));
+        questionRepository.save(new Question("Tem outras cores?", user, product));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(
+                        "/api/products/{id}/questions/search", product.getId().toString()
+                )
+                .param("q", "entregam em manáus")
+                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_products:read")))
+                .header("Accept-Language", "pt-br");
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("Vocês entregam em Manaus?"));
+    }
+
+    @DisplayName("deve limitar a quantidade de perguntas feitas para um produto")
+    @Test
+    void teste08() throws Exception {
+
+        String payload = mapper.writeValueAsString(new NewQuestionRequest("Qual a validade?"));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(
+                        "/api/products/{id}/questions", product.getId().toString()
+                )
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_products:write")))
+                .content(payload)
+                .contentType(MediaType.APPLICATION_JSON).header("Accept-Language", "pt-br");
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isCreated());
+        }
 
-}
\ No newline at end of file
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().exists("Retry-After"));
+
+        assertEquals(3, questionRepository.findAll().size());
+    }
+}
@@ -0,0 +1,79 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuestionCounterTest {
+
+    private final UUID toalha = UUID.randomUUID();
+    private final UUID sabonete = UUID.randomUUID();
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private Consumer<UUID> duringQuery = productId -> {
+    };
+
+    private final QuestionCounter questionCounter = new QuestionCounter(repository(), 100, Duration.ofMinutes(5));
+
+    @DisplayName("deve contar no banco apenas a primeira vez e somar as perguntas novas")
+    @Test
+    void teste01() {
+
+        assertEquals(2, questionCounter.countOf(toalha));
+
+        questionCounter.incrementAfterCommit(toalha);
+
+        assertEquals(3, questionCounter.countOf(toalha));
+        assertEquals(1, queries.get());
+    }
+
+    @DisplayName("deve guardar a contagem de um produto quando outro produto recebe perguntas durante a contagem")
+    @Test
+    void teste02() {
+
+        duringQuery = productId -> questionCounter.incrementAfterCommit(sabonete);
+
+        assertEquals(2, questionCounter.countOf(toalha));
+        assertEquals(2, questionCounter.countOf(toalha));
+
+        assertEquals(1, queries.get());
+    }
+
+    @DisplayName("não deve guardar a contagem de um produto que recebe perguntas durante a contagem")
+    @Test
+    void teste03() {
+
+        duringQuery = productId -> {
+            duringQuery = id -> {
+            };
+            questionCounter.incrementAfterCommit(productId);
+        };
+
+        questionCounter.countOf(toalha);
+        questionCounter.countOf(toalha);
+        questionCounter.countOf(toalha);
+
+        assertEquals(2, queries.get());
+    }
+
+    private QuestionRepository repository() {
+        return (QuestionRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{QuestionRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("countByProductId")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+
+                    queries.incrementAndGet();
+                    duringQuery.accept((UUID) args[0]);
+                    return 2L;
+                });
+    }
+}
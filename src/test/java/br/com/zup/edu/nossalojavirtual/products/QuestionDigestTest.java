@@ -0,0 +1,146 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.shared.email.Email;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailService;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailTemplates;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("tests")
+class QuestionDigestTest {
+
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private QuestionDigestEntryRepository entryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EmailTemplates emailTemplates;
+
+    private User buyer;
+    private Product product;
+    private final List<Email> sent = new ArrayList<>();
+    private final List<Integer> entriesWhileSending = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        entryRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User seller = new User("daniel@email.com", Password.encode("123456"));
+        userRepository.save(seller);
+
+        buyer = new User("comprador@email.com", Password.encode("123456"));
+        userRepository.save(buyer);
+
+        Category category = new Category("Banho");
+        categoryRepository.save(category);
+
+        PreProduct preProduct = new PreProduct(seller, category, "Toalha", BigDecimal.TEN, 5, "Toalha grande");
+        product = new Product(preProduct,
+                List.of(new Photo("foto numero 1")),
+                Set.of(new Characteristic("cor", "branca"),
+                        new Characteristic("tamanho", "grande"),
+                        new Characteristic("peso", "500g")));
+        productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entryRepository.deleteAll();
+    }
+
+    @DisplayName("não deve criar o resumo de perguntas quando ele estiver desabilitado")
+    @Test
+    void teste01() {
+
+        assertTrue(context.getBeansOfType(QuestionDigest.class).isEmpty());
+    }
+
+    @DisplayName("deve enviar as perguntas do vendedor em um único email, apagando-as antes do envio")
+    @Test
+    void teste02() {
+
+        QuestionDigest questionDigest = digest(this::record);
+
+        questionDigest.add(event("Qual a validade?"));
+        questionDigest.add(event("Qual o tamanho?"));
+
+        questionDigest.sendDueDigests();
+
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).getBody().contains("Qual a validade?"));
+        assertTrue(sent.get(0).getBody().contains("Qual o tamanho?"));
+        assertEquals(List.of(0), entriesWhileSending);
+        assertTrue(entryRepository.findAllByOrderByIdAsc().isEmpty());
+
+        questionDigest.sendDueDigests();
+        assertEquals(1, sent.size());
+    }
+
+    @DisplayName("deve guardar de novo as perguntas quando o envio do resumo falhar")
+    @Test
+    void teste03() {
+
+        QuestionDigest failing = digest(email -> {
+            throw new IllegalStateException("servidor de email fora do ar");
+        });
+
+        failing.add(event("Qual a validade?"));
+        failing.sendDueDigests();
+
+        List<QuestionDigestEntry> pending = entryRepository.findAllByOrderByIdAsc();
+        assertEquals(1, pending.size());
+        assertEquals("Qual a validade?", pending.get(0).getQuestionTitle());
+
+        QuestionDigest restored = digest(this::record);
+        restored.restore();
+        restored.sendDueDigests();
+
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).getBody().contains("Qual a validade?"));
+        assertTrue(entryRepository.findAllByOrderByIdAsc().isEmpty());
+    }
+
+    private void record(Email email) {
+        entriesWhileSending.add(entryRepository.findAllByOrderByIdAsc().size());
+        sent.add(email);
+    }
+
+    private QuestionDigest digest(EmailService emailService) {
+        return new QuestionDigest(entryRepository, productRepository, emailService, emailTemplates, Duration.ZERO);
+    }
+
+    private QuestionEvent event(String title) {
+        Question question = new Question(title, buyer, product);
+        return new QuestionEvent(question, UriComponentsBuilder.fromUriString("http://localhost:8080"));
+    }
+}
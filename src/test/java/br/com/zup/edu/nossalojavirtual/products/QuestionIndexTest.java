@@ -0,0 +1,122 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.products.QuestionRepository.QuestionTitle;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuestionIndexTest {
+
+    private final User user = new User("daniel@email.com", Password.encode("123456"));
+    private final Product toalha = product("Toalha");
+    private final Product sabonete = product("Sabonete");
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private Consumer<Product> duringQuery = product -> {
+    };
+
+    private final QuestionIndex questionIndex = new QuestionIndex(repository(), 100);
+
+    @DisplayName("deve carregar o índice de um produto apenas na primeira busca e manter as perguntas novas")
+    @Test
+    void teste01() {
+
+        assertEquals(List.of(1L), idsOf(questionIndex.search(toalha.getId(), "validade", 10)));
+
+        questionIndex.index(event(3L, "Qual a validade da garantia?", toalha));
+
+        assertEquals(List.of(1L, 3L), idsOf(questionIndex.search(toalha.getId(), "validade", 10)));
+        assertEquals(1, queries.get());
+    }
+
+    @DisplayName("deve manter o índice de um produto quando outro produto recebe perguntas durante a carga")
+    @Test
+    void teste02() {
+
+        duringQuery = product -> questionIndex.index(event(10L, "Qual a validade?", sabonete));
+
+        questionIndex.search(toalha.getId(), "validade", 10);
+        questionIndex.search(toalha.getId(), "validade", 10);
+
+        assertEquals(1, queries.get());
+    }
+
+    @DisplayName("deve incluir no índice as perguntas do produto recebidas durante a carga")
+    @Test
+    void teste03() {
+
+        duringQuery = product -> {
+            duringQuery = other -> {
+            };
+            questionIndex.index(event(3L, "Qual a validade da garantia?", product));
+            questionIndex.index(event(1L, "Qual a validade?", product));
+        };
+
+        questionIndex.search(toalha.getId(), "validade", 10);
+
+        assertEquals(List.of(1L, 3L), idsOf(questionIndex.search(toalha.getId(), "validade", 10)));
+        assertEquals(1, queries.get());
+    }
+
+    private List<Long> idsOf(List<QuestionSearchResult> results) {
+        return results.stream().map(QuestionSearchResult::getQuestionId).sorted().collect(toList());
+    }
+
+    private QuestionEvent event(Long id, String title, Product product) {
+        Question question = new Question(title, user, product);
+        ReflectionTestUtils.setField(question, "id", id);
+
+        return new QuestionEvent(question, UriComponentsBuilder.fromUriString("http://localhost:8080"));
+    }
+
+    private Product product(String name) {
+        PreProduct preProduct = new PreProduct(user, new Category("Banho"), name, BigDecimal.TEN, 5, name + " grande");
+        return new Product(preProduct,
+                List.of(new Photo("foto numero 1")),
+                Set.of(new Characteristic("cor", "branca"),
+                        new Characteristic("tamanho", "grande"),
+                        new Characteristic("peso", "500g")));
+    }
+
+    private QuestionRepository repository() {
+        return (QuestionRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{QuestionRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findTitlesByProductId")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+
+                    queries.incrementAndGet();
+                    duringQuery.accept(args[0].equals(toalha.getId()) ? toalha : sabonete);
+                    return List.of(title(1L, "Qual a validade?"), title(2L, "Qual o tamanho?"));
+                });
+    }
+
+    private static QuestionTitle title(Long id, String title) {
+        return new QuestionTitle() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.zup.edu.nossalojavirtual.products;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.shared.email.EmailRepository;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+
+@SpringBootTest
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+@ActiveProfiles("tests")
+class QuestionStreamControllerTest {
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    private User user;
+    private Category category;
+
+    private List<Photo> photos;
+
+    private Set<Characteristic> characteristics;
+
+    private PreProduct preProduct;
+
+    private Product product;
+
+
+    @BeforeEach
+    void setup() {
+
+        emailRepository.deleteAll();
+        questionRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = new User("daniel@email.com", Password.encode("123456"));
+        userRepository.save(user);
+
+        category = new Category("Banho");
+        categoryRepository.save(category);
+
+        photos = List.of(
+                new Photo("foto numero 1"),
+                new Photo("foto numero 2"));
+
+        characteristics = Set.of(
+                new Characteristic("cor", "branca"),
+                new Characteristic("tamanho", "grande"),
+                new Characteristic("peso", "500g"));
+
+        preProduct = new PreProduct(user, category, "Toalha", new BigDecimal("15.00"), 5, "Toalha grande");
+
+        product = new Product(preProduct, photos, characteristics);
+        productRepository.save(product);
+
+    }
+
+
+    @AfterEach
+    void tearDown() {
+        emailRepository.deleteAll();
+        questionRepository.deleteAll();
+    }
+
+    @DisplayName("deve reenviar as perguntas feitas depois do Last-Event-ID ao reconectar")
+    @Test
+    void teste01() throws Exception {
+
+        String payload = mapper.writeValueAsString(new NewQuestionRequest("Qual a validade?"));
+
+        MockHttpServletRequestBuilder askQuestion = MockMvcRequestBuilders.post(
+                        "/api/products/{id}/questions", product.getId().toString()
+                )
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_products:write")))
+                .content(payload)
+                .contentType(MediaType.APPLICATION_JSON).header("Accept-Language", "pt-br");
+
+        mockMvc.perform(askQuestion).andExpect(MockMvcResultMatchers.status().isCreated());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/sellers/me/questions/stream")
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_products:read")))
+                .header("Last-Event-ID", "0")
+                .accept(MediaType.TEXT_EVENT_STREAM);
+
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        assertTrue(waitForContent(result, "Qual a validade?"));
+    }
+
+    @DisplayName("não deve abrir o stream de perguntas sem autenticação")
+    @Test
+    void teste02() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/sellers/me/questions/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM);
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    }
+
+    private boolean waitForContent(MvcResult result, String expected) throws Exception {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            if (result.getResponse().getContentAsString(StandardCharsets.UTF_8).contains(expected)) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+}
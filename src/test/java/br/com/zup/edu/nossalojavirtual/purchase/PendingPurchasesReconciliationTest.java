@@ -0,0 +1,188 @@
+package br.com.zup.edu.nossalojavirtual.purchase;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.purchase.PaymentGatewayStatusClient.GatewayPaymentStatus;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("tests")
+class PendingPurchasesReconciliationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Purchase purchase;
+    private final AtomicInteger gatewayCalls = new AtomicInteger();
+    private final List<Boolean> actionsInTransaction = new CopyOnWriteArrayList<>();
+    private PendingPurchasesReconciliation reconciliation;
+
+    @BeforeEach
+    void setup() {
+        checkpointRepository.deleteAll();
+        purchaseRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User("daniel@email.com", Password.encode("123456"));
+        userRepository.save(user);
+
+        Category category = new Category("Banho");
+        categoryRepository.save(category);
+
+        PreProduct preProduct = new PreProduct(user, category, "Toalha", BigDecimal.TEN, 50, "Toalha grande");
+        Product product = new Product(preProduct,
+                List.of(new Photo("foto numero 1")),
+                Set.of(new Characteristic("cor", "branca"),
+                        new Characteristic("tamanho", "grande"),
+                        new Characteristic("peso", "500g")));
+        productRepository.save(product);
+
+        purchase = new Purchase(user, product, 1, PaymentGateway.PAYPAL);
+        purchaseRepository.save(purchase);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (reconciliation != null) {
+            reconciliation.shutdown();
+        }
+        checkpointRepository.deleteAll();
+        purchaseRepository.deleteAll();
+    }
+
+    @DisplayName("deve processar o pagamento retornado pelo gateway e executar as ações depois do commit")
+    @Test
+    void teste01() {
+
+        reconciliation = reconciliation(Duration.ZERO, Duration.ofDays(3), (gateway, purchaseId) -> new GatewayPaymentStatus("1", "1"));
+
+        reconciliation.reconcile();
+
+        assertEquals(1, gatewayCalls.get());
+        assertTrue(hasPaymentAttempts());
+        assertEquals(List.of(false), actionsInTransaction);
+    }
+
+    @DisplayName("não deve consultar o gateway para compras ainda dentro do prazo do retorno")
+    @Test
+    void teste02() {
+
+        reconciliation = reconciliation(Duration.ofHours(1), Duration.ofDays(3), (gateway, purchaseId) -> new GatewayPaymentStatus("1", "1"));
+
+        reconciliation.reconcile();
+
+        assertEquals(0, gatewayCalls.get());
+        assertFalse(hasPaymentAttempts());
+        assertTrue(actionsInTransaction.isEmpty());
+    }
+
+    @DisplayName("não deve processar de novo uma compra paga pelo retorno do gateway durante a consulta")
+    @Test
+    void teste03() {
+
+        reconciliation = reconciliation(Duration.ZERO, Duration.ofDays(3), (gateway, purchaseId) -> {
+            transactionTemplate.executeWithoutResult(status -> purchaseRepository.findById(purchaseId).get()
+                    .process(new PaymentReturn(purchaseId, "retorno", "1")));
+
+            return new GatewayPaymentStatus("1", "1");
+        });
+
+        reconciliation.reconcile();
+
+        assertEquals(1, gatewayCalls.get());
+        assertTrue(hasPaymentAttempts());
+        assertTrue(actionsInTransaction.isEmpty());
+    }
+
+    @DisplayName("não deve processar compras que o gateway ainda não recebeu")
+    @Test
+    void teste04() {
+
+        reconciliation = reconciliation(Duration.ZERO, Duration.ofDays(3), (gateway, purchaseId) -> new GatewayPaymentStatus(null, null));
+
+        reconciliation.reconcile();
+
+        assertEquals(1, gatewayCalls.get());
+        assertFalse(hasPaymentAttempts());
+        assertTrue(actionsInTransaction.isEmpty());
+    }
+
+    @DisplayName("não deve consultar o gateway para compras mais antigas que a idade máxima")
+    @Test
+    void teste05() {
+
+        reconciliation = reconciliation(Duration.ZERO, Duration.ZERO, (gateway, purchaseId) -> new GatewayPaymentStatus("1", "1"));
+
+        reconciliation.reconcile();
+
+        assertEquals(0, gatewayCalls.get());
+        assertFalse(hasPaymentAttempts());
+        assertEquals(0, checkpointRepository.count());
+    }
+
+    @DisplayName("deve apagar os checkpoints da passada anterior ao iniciar uma nova")
+    @Test
+    void teste06() {
+
+        reconciliation = reconciliation(Duration.ZERO, Duration.ofDays(3), (gateway, purchaseId) -> new GatewayPaymentStatus(null, null));
+
+        reconciliation.reconcile();
+        long checkpoints = checkpointRepository.count();
+        reconciliation.reconcile();
+
+        assertEquals(2, gatewayCalls.get());
+        assertEquals(1, checkpoints);
+        assertEquals(checkpoints, checkpointRepository.count());
+        assertTrue(checkpointRepository.findByFinishedFalse().isEmpty());
+    }
+
+    private PendingPurchasesReconciliation reconciliation(Duration gracePeriod, Duration maxAge, PaymentGatewayStatusClient gateway) {
+        PaymentGatewayStatusClient countingGateway = (name, purchaseId) -> {
+            gatewayCalls.incrementAndGet();
+            return gateway.statusOf(name, purchaseId);
+        };
+
+        PostPurchaseAction recordingAction = (payment, uriBuilder) ->
+                actionsInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+
+        return new PendingPurchasesReconciliation(purchaseRepository, checkpointRepository, countingGateway,
+                Set.of(recordingAction), transactionTemplate, 2, 10, gracePeriod, maxAge, "http://localhost:8080");
+    }
+
+    private boolean hasPaymentAttempts() {
+        return transactionTemplate.execute(status -> purchaseRepository.findById(purchase.getId()).get().hasPaymentAttempts());
+    }
+}
@@ -10,6 +10,7 @@ import br.com.zup.edu.nossalojavirtual.users.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -93,6 +94,11 @@ class PurchaseControllerTest {
 
     }
 
+    @AfterEach
+    void tearDown() {
+        purchaseRepository.deleteAll();
+    }
+
     @DisplayName("Deve realizar uma nova compra com Paypal")
     @Test
     void teste01() throws Exception {
@@ -227,4 +233,34 @@ class PurchaseControllerTest {
 
     }
 
-}
\ No newline at end of file
+    @DisplayName("não deve consultar o estoque de um produto já esgotado")
+    @Test
+    void teste07() throws Exception {
+
+        NewPurchaseRequest soldOut = new NewPurchaseRequest(product.getId(), 5, PaymentGateway.PAYPAL);
+
+        MockHttpServletRequestBuilder firstRequest = MockMvcRequestBuilders.post("/api/purchase")
+                .content(mapper.writeValueAsString(soldOut)).contentType(MediaType.APPLICATION_JSON).header("Accept-Language", "pt-br")
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_purchase:write")));
+
+        mockMvc.perform(firstRequest).andExpect(MockMvcResultMatchers.status().isOk());
+
+        NewPurchaseRequest newPurchaseRequest = new NewPurchaseRequest(product.getId(), 1, PaymentGateway.PAYPAL);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/purchase")
+                .content(mapper.writeValueAsString(newPurchaseRequest)).contentType(MediaType.APPLICATION_JSON).header("Accept-Language", "pt-br")
+                .with(jwt().jwt(jwt -> {
+                    jwt.claim("email", user.getUsername());
+                }).authorities(new SimpleGrantedAuthority("SCOPE_purchase:write")));
+
+        Exception resolvedException = mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andReturn().getResolvedException();
+
+        assertEquals(BindException.class, resolvedException.getClass());
+        assertEquals(1, purchaseRepository.findAll().size());
+        assertEquals(0, productRepository.findById(product.getId()).get().getStockQuantity());
+    }
+
+}
@@ -0,0 +1,166 @@
+package br.com.zup.edu.nossalojavirtual.shared.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClockCacheTest {
+
+    private static final int THREADS = 8;
+
+    @DisplayName("deve descartar a entrada não lida mais antiga quando passar do tamanho máximo")
+    @Test
+    void teste01() {
+
+        ClockCache<String, Integer> cache = new ClockCache<>(2);
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @DisplayName("deve dar uma segunda chance às entradas lidas")
+    @Test
+    void teste02() {
+
+        ClockCache<String, Integer> cache = new ClockCache<>(2);
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @DisplayName("deve manter o valor existente no putIfAbsent e remover só com o valor atual")
+    @Test
+    void teste03() {
+
+        ClockCache<String, Integer> cache = new ClockCache<>(10);
+
+        assertNull(cache.putIfAbsent("a", 1));
+        assertEquals(1, cache.putIfAbsent("a", 2));
+
+        cache.remove("a", 2);
+        assertEquals(1, cache.get("a"));
+
+        cache.remove("a", 1);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @DisplayName("deve guardar um único valor quando várias threads fizerem putIfAbsent da mesma chave")
+    @Test
+    void teste04() throws Exception {
+
+        ClockCache<String, Integer> cache = new ClockCache<>(10_000);
+        AtomicInteger winners = new AtomicInteger();
+
+        concurrently(thread -> {
+            for (int round = 0; round < 1_000; round++) {
+                String key = "chave" + round;
+                Integer existing = cache.putIfAbsent(key, thread);
+                if (existing == null) {
+                    winners.incrementAndGet();
+                } else {
+                    assertEquals(existing, cache.get(key));
+                }
+            }
+        });
+
+        assertEquals(1_000, winners.get());
+        assertEquals(1_000, cache.size());
+    }
+
+    @DisplayName("não deve remover o valor de outra thread quando várias threads disputarem a mesma chave")
+    @Test
+    void teste05() throws Exception {
+
+        ClockCache<String, Integer> cache = new ClockCache<>(10);
+        AtomicInteger holder = new AtomicInteger(-1);
+        AtomicInteger held = new AtomicInteger();
+
+        concurrently(thread -> {
+            for (int round = 0; round < 10_000; round++) {
+                if (cache.putIfAbsent("chave", thread) == null) {
+                    assertTrue(holder.compareAndSet(-1, thread), "duas threads com a mesma chave");
+                    held.incrementAndGet();
+                    holder.set(-1);
+                    cache.remove("chave", thread);
+                } else {
+                    cache.remove("chave", thread);
+                }
+            }
+        });
+
+        assertTrue(held.get() > 0);
+        assertNull(cache.get("chave"));
+        assertEquals(0, cache.size());
+    }
+
+    @DisplayName("deve manter o tamanho próximo do máximo com várias threads escrevendo")
+    @Test
+    void teste06() throws Exception {
+
+        ClockCache<Integer, Integer> cache = new ClockCache<>(100);
+
+        concurrently(thread -> {
+            for (int i = 0; i < 10_000; i++) {
+                int key = thread * 10_000 + i;
+                cache.put(key, key);
+                cache.get(key - 1);
+            }
+        });
+
+        assertTrue(cache.size() <= 100 + THREADS, "tamanho: " + cache.size());
+        assertEquals(THREADS * 10_000 - cache.size(), cache.getEvictions());
+    }
+
+    private static void concurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int number = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(number);
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+
+        void run(int thread);
+    }
+}
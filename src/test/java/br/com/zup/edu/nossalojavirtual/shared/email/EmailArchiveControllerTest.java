@@ -0,0 +1,212 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+
+@SpringBootTest
+@AutoConfigureMockMvc(printOnlyOnFailure = false)
+@ActiveProfiles("tests")
+class EmailArchiveControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private EmailRepository emailRepository;
+    @Autowired
+    private EmailArchive emailArchive;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${email.archive.directory}")
+    private Path archiveDirectory;
+
+    private User seller;
+    private Product product;
+
+    @BeforeEach
+    void setup() throws IOException {
+        FileSystemUtils.deleteRecursively(archiveDirectory);
+
+        emailRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        seller = new User("daniel@email.com", Password.encode("123456"));
+        userRepository.save(seller);
+
+        Category category = new Category("Banho");
+        categoryRepository.save(category);
+
+        PreProduct preProduct = new PreProduct(seller, category, "Toalha", BigDecimal.TEN, 5, "Toalha grande");
+        product = new Product(preProduct,
+                List.of(new Photo("foto numero 1")),
+                Set.of(new Characteristic("cor", "branca"),
+                        new Characteristic("tamanho", "grande"),
+                        new Characteristic("peso", "500g")));
+        productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailRepository.deleteAll();
+    }
+
+    @DisplayName("deve ler os emails arquivados de um vendedor")
+    @Test
+    void teste01() throws Exception {
+
+        emailRepository.save(Email.to(seller.getUsername())
+                .from("comprador@email.com")
+                .subject("You have a new question")
+                .body("Qual a validade?")
+                .product(product)
+                .build());
+
+        emailRepository.save(Email.to("outro@email.com")
+                .from("comprador@email.com")
+                .subject("You have a new question")
+                .body("Qual a cor?")
+                .product(product)
+                .build());
+
+        LocalDate today = LocalDate.now();
+        emailArchive.archive(Email.sentMonthOf(today));
+
+        assertEquals(0, emailRepository.count());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/emails/archive")
+                .param("seller", seller.getUsername())
+                .param("from", today.toString())
+                .param("to", today.toString())
+                .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_emails:read")));
+
+        String response = mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<ArchivedEmail> emails = mapper.readValue(response, new TypeReference<>() {
+        });
+
+        assertEquals(1, emails.size());
+        assertEquals("Qual a validade?", emails.get(0).getBody());
+        assertEquals(product.getId(), emails.get(0).getProductId());
+    }
+
+    @DisplayName("não deve ler os emails arquivados sem autorização")
+    @Test
+    void teste02() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/emails/archive")
+                .param("seller", seller.getUsername())
+                .param("from", "2022-01-01")
+                .param("to", "2022-01-31")
+                .with(jwt());
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    @DisplayName("deve arquivar em um novo arquivo os emails recebidos depois de o mês ser arquivado")
+    @Test
+    void teste03() throws Exception {
+
+        int month = Email.sentMonthOf(LocalDate.now());
+
+        emailRepository.save(email("Qual a validade?"));
+        emailArchive.archive(month);
+
+        emailRepository.save(email("Qual a cor?"));
+        emailArchive.archive(month);
+        emailArchive.archive(month);
+
+        assertEquals(0, emailRepository.count());
+        assertEquals(2, archivedFiles());
+        assertEquals(List.of("Qual a validade?", "Qual a cor?"), archivedBodies());
+    }
+
+    @DisplayName("deve refazer o arquivamento interrompido sem duplicar os emails")
+    @Test
+    void teste04() throws Exception {
+
+        int month = Email.sentMonthOf(LocalDate.now());
+
+        emailRepository.save(email("Qual a validade?"));
+        emailRepository.save(email("Qual a cor?"));
+        transactionTemplate.execute(status -> emailRepository.assignArchiveRun(month, 1L));
+
+        Files.createDirectories(archiveDirectory);
+        Files.write(archiveDirectory.resolve("emails-" + month + "-1.ndjson.gz"), new byte[]{0x1f, (byte) 0x8b, 8});
+
+        emailArchive.archive(month);
+
+        assertEquals(0, emailRepository.count());
+        assertEquals(1, archivedFiles());
+        assertEquals(List.of("Qual a validade?", "Qual a cor?"), archivedBodies());
+    }
+
+    private Email email(String body) {
+        return Email.to(seller.getUsername())
+                .from("comprador@email.com")
+                .subject("You have a new question")
+                .body(body)
+                .product(product)
+                .build();
+    }
+
+    private long archivedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            return files.count();
+        }
+    }
+
+    private List<String> archivedBodies() {
+        LocalDate today = LocalDate.now();
+        return emailArchive.read(seller.getUsername(), today, today).stream()
+                .map(ArchivedEmail::getBody)
+                .collect(toList());
+    }
+}
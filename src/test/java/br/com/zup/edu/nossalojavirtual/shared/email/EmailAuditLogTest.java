@@ -0,0 +1,139 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("tests")
+class EmailAuditLogTest {
+
+    @Autowired
+    private EmailRepository emailRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Product product;
+    private final List<Runnable> pendingFlushes = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        emailRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User seller = new User("daniel@email.com", Password.encode("123456"));
+        userRepository.save(seller);
+
+        Category category = new Category("Banho");
+        categoryRepository.save(category);
+
+        PreProduct preProduct = new PreProduct(seller, category, "Toalha", BigDecimal.TEN, 5, "Toalha grande");
+        product = new Product(preProduct,
+                List.of(new Photo("foto numero 1")),
+                Set.of(new Characteristic("cor", "branca"),
+                        new Characteristic("tamanho", "grande"),
+                        new Characteristic("peso", "500g")));
+        productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailRepository.deleteAll();
+    }
+
+    @DisplayName("deve gravar os emails fora da thread de quem envia assim que houver um lote completo")
+    @Test
+    void teste01() {
+
+        EmailAuditLog emailAuditLog = auditLog(2, 10, pendingFlushes::add);
+
+        emailAuditLog.append(email("primeiro"));
+        assertEquals(0, pendingFlushes.size());
+
+        emailAuditLog.append(email("segundo"));
+        assertEquals(1, pendingFlushes.size());
+        assertEquals(0, emailRepository.count());
+
+        pendingFlushes.get(0).run();
+
+        assertEquals(2, emailRepository.count());
+        assertEquals(0, emailAuditLog.getBuffered());
+        assertEquals(2, emailAuditLog.getWritten());
+    }
+
+    @DisplayName("deve descartar os emails que passarem do limite do buffer")
+    @Test
+    void teste02() {
+
+        EmailAuditLog emailAuditLog = auditLog(2, 3, pendingFlushes::add);
+
+        for (int i = 0; i < 5; i++) {
+            emailAuditLog.append(email("email " + i));
+        }
+
+        assertEquals(3, emailAuditLog.getBuffered());
+        assertEquals(2, emailAuditLog.getLost());
+        assertEquals(1, pendingFlushes.size());
+
+        emailAuditLog.flush();
+        assertEquals(3, emailRepository.count());
+    }
+
+    @DisplayName("deve gravar apenas os emails auditados")
+    @Test
+    void teste03() {
+
+        EmailAuditLog emailAuditLog = auditLog(1, 10, Runnable::run);
+
+        emailAuditLog.append(Email.to("daniel@email.com")
+                .from("comprador@email.com")
+                .subject("Compra confirmada")
+                .body("sem auditoria")
+                .product(product)
+                .build());
+        emailAuditLog.append(email("auditado"));
+
+        assertEquals(1, emailRepository.count());
+    }
+
+    private EmailAuditLog auditLog(int batchSize, int maxBuffered, Executor flusher) {
+        return new EmailAuditLog(emailRepository, transactionTemplate, batchSize, maxBuffered, flusher);
+    }
+
+    private Email email(String body) {
+        return Email.to("daniel@email.com")
+                .from("comprador@email.com")
+                .subject("You have a new question")
+                .body(body)
+                .product(product)
+                .audited()
+                .build();
+    }
+}
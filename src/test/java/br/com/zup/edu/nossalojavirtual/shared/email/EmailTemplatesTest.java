@@ -0,0 +1,89 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplatesTest {
+
+    private final EmailTemplates emailTemplates = new EmailTemplates(List.of(".br=pt-BR"));
+
+    @DisplayName("deve renderizar um template compilado com os argumentos em qualquer ordem")
+    @Test
+    void teste01() {
+
+        EmailTemplate template = EmailTemplate.compile("{1} em {0}, {1} de novo");
+
+        assertEquals(2, template.getArgumentCount());
+        assertEquals("Toalha em http://loja/1, Toalha de novo", template.render("http://loja/1", "Toalha"));
+        assertEquals("sem argumentos", EmailTemplate.compile("sem argumentos").render());
+    }
+
+    @DisplayName("não deve compilar um template com placeholder que não é número")
+    @Test
+    void teste02() {
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> EmailTemplate.compile("{produto} em {0}"));
+
+        assertTrue(exception.getMessage().contains("{produto}"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("{99999999999}"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("{}"));
+    }
+
+    @DisplayName("não deve compilar um template que pula um argumento")
+    @Test
+    void teste03() {
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> EmailTemplate.compile("{0} em {2}"));
+
+        assertTrue(exception.getMessage().contains("{1}"));
+    }
+
+    @DisplayName("não deve renderizar um template sem todos os argumentos")
+    @Test
+    void teste04() {
+
+        EmailTemplate template = EmailTemplate.compile("{0} em {1}");
+
+        assertThrows(IllegalArgumentException.class, () -> template.render("Toalha"));
+    }
+
+    @DisplayName("deve escolher o idioma pelo domínio do destinatário")
+    @Test
+    void teste05() {
+
+        Locale brazilian = emailTemplates.localeOf("daniel@email.com.BR");
+        Locale other = emailTemplates.localeOf("daniel@email.com");
+
+        assertEquals(Locale.forLanguageTag("pt-BR"), brazilian);
+        assertEquals(Locale.ROOT, other);
+
+        assertEquals("Você tem uma nova pergunta", emailTemplates.get("question.subject", brazilian).render());
+        assertEquals("You have a new question", emailTemplates.get("question.subject", other).render());
+        assertEquals("You have a new question", emailTemplates.get("question.subject", Locale.FRENCH).render());
+    }
+
+    @DisplayName("deve formatar as datas com o padrão do idioma")
+    @Test
+    void teste06() {
+
+        LocalDateTime afternoon = LocalDateTime.of(2022, 9, 5, 15, 4, 5);
+
+        assertEquals("05/09/2022 03:04:05", emailTemplates.formatDate(afternoon, Locale.forLanguageTag("pt-BR")));
+        assertEquals("05/09/2022 03:04:05", emailTemplates.formatDate(afternoon, Locale.ROOT));
+    }
+
+    @DisplayName("não deve aceitar um template desconhecido")
+    @Test
+    void teste07() {
+
+        assertThrows(IllegalArgumentException.class, () -> emailTemplates.get("nao.existe", Locale.ROOT));
+    }
+}
@@ -0,0 +1,249 @@
+package br.com.zup.edu.nossalojavirtual.shared.email;
+
+import br.com.zup.edu.nossalojavirtual.categories.Category;
+import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
+import br.com.zup.edu.nossalojavirtual.products.*;
+import br.com.zup.edu.nossalojavirtual.users.Password;
+import br.com.zup.edu.nossalojavirtual.users.User;
+import br.com.zup.edu.nossalojavirtual.users.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("tests")
+class QueuedEmailServiceTest {
+
+    private static final Path SPILL_DIRECTORY = Path.of("target/email-spill");
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private EmailAuditLog emailAuditLog;
+    @Autowired
+    private EmailRepository emailRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Product product;
+    private BlockingSink sink;
+    private QueuedEmailService queuedEmailService;
+
+    @BeforeEach
+    void setup() throws IOException {
+        FileSystemUtils.deleteRecursively(SPILL_DIRECTORY);
+
+        emailRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User seller = new User("daniel@email.com", Password.encode("123456"));
+        userRepository.save(seller);
+
+        Category category = new Category("Banho");
+        categoryRepository.save(category);
+
+        PreProduct preProduct = new PreProduct(seller, category, "Toalha", BigDecimal.TEN, 5, "Toalha grande");
+        product = new Product(preProduct,
+                List.of(new Photo("foto numero 1")),
+                Set.of(new Characteristic("cor", "branca"),
+                        new Characteristic("tamanho", "grande"),
+                        new Characteristic("peso", "500g")));
+        productRepository.save(product);
+
+        sink = new BlockingSink(emailAuditLog);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sink.release();
+        if (queuedEmailService != null) {
+            queuedEmailService.shutdown();
+        }
+        emailAuditLog.flush();
+        emailRepository.deleteAll();
+    }
+
+    @DisplayName("deve descartar o email mais antigo da fila quando ela estiver cheia")
+    @Test
+    void teste01() throws Exception {
+
+        queuedEmailService = start(EmailOverflowPolicy.DROP_OLDEST);
+
+        queuedEmailService.send(email("primeiro"));
+        sink.awaitSending();
+
+        queuedEmailService.send(email("segundo"));
+        queuedEmailService.send(email("terceiro"));
+
+        assertEquals(1, queuedEmailService.getMetrics().getDropped());
+
+        sink.release();
+        await(() -> sink.sentBodies().size() == 2);
+
+        assertEquals(List.of("primeiro", "terceiro"), sink.sentBodies());
+    }
+
+    @DisplayName("deve enviar os emails que não couberam na fila depois de gravá-los em disco, mantendo o produto")
+    @Test
+    void teste02() throws Exception {
+
+        queuedEmailService = start(EmailOverflowPolicy.SPILL_TO_DISK);
+
+        queuedEmailService.send(email("primeiro"));
+        sink.awaitSending();
+
+        queuedEmailService.send(email("segundo"));
+        queuedEmailService.send(email("terceiro"));
+
+        assertEquals(1, queuedEmailService.getMetrics().getSpilled());
+        assertTrue(Files.exists(SPILL_DIRECTORY.resolve("emails.ndjson")));
+
+        sink.release();
+        await(() -> sink.sentBodies().size() == 3);
+
+        assertEquals(List.of("primeiro", "segundo", "terceiro"), sink.sentBodies());
+        assertTrue(sink.sent.stream().allMatch(email -> product.getId().equals(email.getProductId())));
+
+        emailAuditLog.flush();
+        assertEquals(3, emailRepository.count());
+    }
+
+    @DisplayName("deve reenviar os emails que estavam sendo reenviados quando a aplicação parou")
+    @Test
+    void teste03() throws Exception {
+
+        spillLeftover(email("primeiro"));
+
+        sink.release();
+        queuedEmailService = start(EmailOverflowPolicy.SPILL_TO_DISK);
+
+        await(() -> sink.sentBodies().size() == 1);
+
+        assertEquals(List.of("primeiro"), sink.sentBodies());
+        assertEquals(product.getId(), sink.sent.peek().getProductId());
+        await(() -> !Files.exists(SPILL_DIRECTORY.resolve("emails-1.replaying")));
+    }
+
+    @DisplayName("deve gravar de novo em disco os emails reenviados que não couberem na fila")
+    @Test
+    void teste04() throws Exception {
+
+        spillLeftover(email("primeiro"), email("segundo"), email("terceiro"));
+
+        queuedEmailService = start(EmailOverflowPolicy.SPILL_TO_DISK);
+        sink.awaitSending();
+
+        Path spillFile = SPILL_DIRECTORY.resolve("emails.ndjson");
+        await(() -> Files.exists(spillFile));
+        assertEquals(2, Files.readAllLines(spillFile, UTF_8).size());
+
+        sink.release();
+        await(() -> sink.sentBodies().size() == 3);
+
+        assertEquals(List.of("primeiro", "segundo", "terceiro"), sink.sentBodies());
+    }
+
+    private QueuedEmailService start(EmailOverflowPolicy overflowPolicy) {
+        return new QueuedEmailService(sink, mapper, productRepository, 1, 1, overflowPolicy, SPILL_DIRECTORY);
+    }
+
+    private Email email(String body) {
+        return Email.to("daniel@email.com")
+                .from("comprador@email.com")
+                .subject("You have a new question")
+                .body(body)
+                .product(product)
+                .audited()
+                .build();
+    }
+
+    private void spillLeftover(Email... emails) throws IOException {
+        Files.createDirectories(SPILL_DIRECTORY);
+
+        StringBuilder lines = new StringBuilder();
+        for (Email email : emails) {
+            lines.append(mapper.writeValueAsString(new QueuedEmailService.SpilledEmail(email))).append('\n');
+        }
+
+        Files.writeString(SPILL_DIRECTORY.resolve("emails-1.replaying"), lines, UTF_8);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("the condition was not met in 10 seconds");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Sends nothing until released, so the queue can be filled
+     */
+    private static class BlockingSink extends LocalEmailService {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final Queue<Email> sent = new ConcurrentLinkedQueue<>();
+
+        private BlockingSink(EmailAuditLog emailAuditLog) {
+            super(emailAuditLog);
+        }
+
+        @Override
+        public void send(Email email) {
+            sending.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+
+            super.send(email);
+            sent.add(email);
+        }
+
+        void awaitSending() throws InterruptedException {
+            assertTrue(sending.await(10, SECONDS));
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        List<String> sentBodies() {
+            return sent.stream().map(Email::getBody).collect(toList());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package br.com.zup.edu.nossalojavirtual.shared.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final RateLimiter rateLimiter = new RateLimiter(environment());
+
+    @DisplayName("deve limitar a quantidade de opiniões de um usuário em qualquer produto")
+    @Test
+    void teste01() {
+
+        rateLimiter.acquire("opinions", "daniel@email.com", "toalha");
+        rateLimiter.acquire("opinions", "daniel@email.com", "sabonete");
+
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire("opinions", "daniel@email.com", "shampoo"));
+
+        assertTrue(exception.getRetryAfterSeconds() > 0);
+        rateLimiter.acquire("opinions", "maria@email.com", "shampoo");
+    }
+
+    @DisplayName("deve limitar a quantidade de opiniões de um produto entre todos os usuários")
+    @Test
+    void teste02() {
+
+        rateLimiter.acquire("opinions", "daniel@email.com", "toalha");
+
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire("opinions", "maria@email.com", "toalha"));
+    }
+
+    @DisplayName("não deve gastar o limite do usuário quando o limite do produto recusar a opinião")
+    @Test
+    void teste03() {
+
+        rateLimiter.acquire("opinions", "daniel@email.com", "toalha");
+
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire("opinions", "daniel@email.com", "toalha"));
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire("opinions", "daniel@email.com", "toalha"));
+
+        rateLimiter.acquire("opinions", "daniel@email.com", "sabonete");
+    }
+
+    private static MockEnvironment environment() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rate-limit.opinions.per-user", "2")
+                .withProperty("rate-limit.opinions.per-product", "1")
+                .withProperty("rate-limit.opinions.window", "PT1M");
+        environment.setConversionService(new ApplicationConversionService());
+
+        return environment;
+    }
+}
@@ -0,0 +1,47 @@
+package br.com.zup.edu.nossalojavirtual.shared.validators;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @DisplayName("deve encontrar todos os valores adicionados")
+    @Test
+    void teste01() {
+
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        IntStream.range(0, 10_000).forEach(i -> filter.add("usuario" + i + "@email.com"));
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("usuario" + i + "@email.com")));
+        assertEquals(10_000, filter.getInserted());
+    }
+
+    @DisplayName("deve ter falsos positivos próximos da taxa configurada")
+    @Test
+    void teste02() {
+
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("usuario" + i + "@email.com"));
+
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> filter.mightContain("outro" + i + "@email.com"))
+                .count();
+
+        assertTrue(falsePositives < 300, "falsos positivos: " + falsePositives);
+        assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.005);
+    }
+
+    @DisplayName("não deve criar um filtro com tamanho ou taxa de falsos positivos inválidos")
+    @Test
+    void teste03() {
+
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
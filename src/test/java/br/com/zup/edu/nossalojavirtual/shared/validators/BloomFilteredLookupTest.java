@@ -0,0 +1,81 @@
+package br.com.zup.edu.nossalojavirtual.shared.validators;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilteredLookupTest {
+
+    private final Set<String> stored = Set.of("daniel@email.com", "maria@email.com");
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @DisplayName("deve consultar sempre antes de o filtro ser carregado")
+    @Test
+    void teste01() {
+
+        BloomFilteredLookup lookup = lookup(true);
+
+        assertTrue(lookup.mightExist("novo@email.com"));
+        assertFalse(lookup.apply("novo@email.com"));
+        assertTrue(lookup.apply("daniel@email.com"));
+
+        assertEquals(2, queries.get());
+        assertEquals(0, lookup.getSkippedLookups());
+    }
+
+    @DisplayName("deve responder sem consultar os valores que o filtro carregado não contém")
+    @Test
+    void teste02() {
+
+        BloomFilteredLookup lookup = lookup(true);
+        lookup.load(stored.stream());
+
+        assertFalse(lookup.mightExist("novo@email.com"));
+        assertFalse(lookup.apply("novo@email.com"));
+        assertEquals(0, queries.get());
+        assertEquals(2, lookup.getSkippedLookups());
+
+        assertTrue(lookup.mightExist("daniel@email.com"));
+        assertTrue(lookup.apply("daniel@email.com"));
+        assertEquals(1, queries.get());
+    }
+
+    @DisplayName("deve encontrar os valores adicionados depois da carga")
+    @Test
+    void teste03() {
+
+        BloomFilteredLookup lookup = lookup(true);
+        lookup.load(Stream.empty());
+
+        assertFalse(lookup.mightExist("novo@email.com"));
+        lookup.add("novo@email.com");
+
+        assertTrue(lookup.mightExist("novo@email.com"));
+    }
+
+    @DisplayName("deve consultar sempre quando o filtro estiver desabilitado")
+    @Test
+    void teste04() {
+
+        BloomFilteredLookup lookup = lookup(false);
+        lookup.load(stored.stream());
+
+        assertTrue(lookup.mightExist("novo@email.com"));
+        assertFalse(lookup.apply("novo@email.com"));
+
+        assertEquals(1, queries.get());
+        assertEquals(0, lookup.getSkippedLookups());
+    }
+
+    private BloomFilteredLookup lookup(boolean enabled) {
+        return new BloomFilteredLookup(new BloomFilter(1_000, 0.01), value -> {
+            queries.incrementAndGet();
+            return stored.contains(value);
+        }, enabled);
+    }
+}
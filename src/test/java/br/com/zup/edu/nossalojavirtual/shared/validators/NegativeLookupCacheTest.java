@@ -0,0 +1,116 @@
+package br.com.zup.edu.nossalojavirtual.shared.validators;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NegativeLookupCacheTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @DisplayName("não deve consultar de novo um id que não foi encontrado")
+    @Test
+    void teste01() {
+
+        NegativeLookupCache<Long> cache = new NegativeLookupCache<>(10, Duration.ofMinutes(1));
+
+        assertTrue(cache.find(1L, this::notFound).isEmpty());
+        assertTrue(cache.find(1L, this::notFound).isEmpty());
+        assertFalse(cache.exists(1L, id -> notFound(id).isPresent()));
+
+        assertEquals(1, queries.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+    }
+
+    @DisplayName("não deve lembrar os ids encontrados")
+    @Test
+    void teste02() {
+
+        NegativeLookupCache<Long> cache = new NegativeLookupCache<>(10, Duration.ofMinutes(1));
+
+        assertEquals(Optional.of("compra"), cache.find(1L, this::found));
+        assertEquals(Optional.of("compra"), cache.find(1L, this::found));
+
+        assertEquals(2, queries.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    @DisplayName("deve consultar de novo um id depois que ele expirar")
+    @Test
+    void teste03() throws InterruptedException {
+
+        NegativeLookupCache<Long> cache = new NegativeLookupCache<>(10, Duration.ofMillis(200));
+
+        cache.find(1L, this::notFound);
+        cache.find(1L, this::notFound);
+        assertEquals(1, queries.get());
+
+        Thread.sleep(300);
+
+        cache.find(1L, this::notFound);
+        assertEquals(2, queries.get());
+    }
+
+    @DisplayName("deve consultar de novo um id depois que ele for cadastrado")
+    @Test
+    void teste04() {
+
+        NegativeLookupCache<Long> cache = new NegativeLookupCache<>(10, Duration.ofMinutes(1));
+
+        cache.find(1L, this::notFound);
+        cache.invalidate(1L);
+
+        assertEquals(Optional.of("compra"), cache.find(1L, this::found));
+        assertEquals(2, queries.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    @DisplayName("não deve lembrar uma consulta que rodou enquanto o id era cadastrado")
+    @Test
+    void teste05() {
+
+        NegativeLookupCache<Long> cache = new NegativeLookupCache<>(10, Duration.ofMinutes(1));
+
+        Optional<String> raced = cache.find(1L, id -> {
+            Optional<String> result = notFound(id);
+            cache.invalidate(id);
+            return result;
+        });
+
+        assertTrue(raced.isEmpty());
+        assertEquals(0, cache.getSize());
+
+        assertEquals(Optional.of("compra"), cache.find(1L, this::found));
+        assertEquals(2, queries.get());
+    }
+
+    @DisplayName("deve lembrar no máximo a quantidade configurada de ids")
+    @Test
+    void teste06() {
+
+        NegativeLookupCache<Long> cache = new NegativeLookupCache<>(2, Duration.ofMinutes(1));
+
+        for (long id = 1; id <= 5; id++) {
+            cache.find(id, this::notFound);
+        }
+
+        assertTrue(cache.getSize() <= 2);
+    }
+
+    private Optional<String> notFound(Long id) {
+        queries.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private Optional<String> found(Long id) {
+        queries.incrementAndGet();
+        return Optional.of("compra");
+    }
+}
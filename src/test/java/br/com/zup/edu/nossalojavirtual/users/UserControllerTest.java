@@ -3,6 +3,7 @@ package br.com.zup.edu.nossalojavirtual.users;
 import br.com.zup.edu.nossalojavirtual.categories.CategoryRepository;
 import br.com.zup.edu.nossalojavirtual.exception.MensagemDeErro;
 import br.com.zup.edu.nossalojavirtual.products.ProductRepository;
+import br.com.zup.edu.nossalojavirtual.shared.validators.BloomFilteredLookup;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -16,6 +17,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -43,6 +45,8 @@ class UserControllerTest {
 
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private RegisteredEmails registeredEmails;
 
 
 
@@ -68,7 +72,11 @@ class UserControllerTest {
 
                 .contentType(MediaType.APPLICATION_JSON).content(payload).header("Accept-Language", "pt-br");
 
-        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isCreated())
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(MockMvcResultMatchers.status().isCreated())
                 .andExpect(MockMvcResultMatchers.redirectedUrlPattern("/api/users/*"));
 
         assertEquals(1,userRepository.findAll().size());
@@ -204,6 +212,83 @@ class UserControllerTest {
 
     }
 
+    @DisplayName("deve importar usuarios de um NDJSON informando as linhas com erro")
+    @Test
+    void teste07() throws Exception {
+
+        userRepository.save(new User("registrado@email.com", Password.encode("123456")));
+
+        String payload = String.join("\n",
+                "{\"login\":\"um@email.com\",\"password\":\"123456\"}",
+                "{\"login\":\"registrado@email.com\",\"password\":\"123456\"}",
+                "{\"login\":\"dois@email.com\",\"password\":\"12\"}",
+                "nao e json",
+                "{\"login\":\"um@email.com\",\"password\":\"654321\"}",
+                "{\"login\":\"tres@email.com\",\"password\":\"123456\"}");
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/users/import").with(
+                        jwt().authorities(new SimpleGrantedAuthority("SCOPE_users:write")))
+                .contentType("application/x-ndjson").content(payload).header("Accept-Language", "pt-br");
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[*].line").value(Matchers.containsInAnyOrder(2, 3, 4, 5)));
+
+        assertEquals(3, userRepository.findAll().size());
+        assertTrue(userRepository.findByEmail("tres@email.com").isPresent());
+    }
+
+    @DisplayName("deve contar uma vez a linha importada com mais de um erro")
+    @Test
+    void teste08() throws Exception {
+
+        userRepository.save(new User("registrado@email.com", Password.encode("123456")));
+
+        String payload = String.join("\n",
+                "{\"login\":\"nao e email\",\"password\":\"12\"}",
+                "{\"login\":\"registrado@email.com\",\"password\":\"123456\"}",
+                "{\"login\":\"um@email.com\",\"password\":\"123456\"}",
+                "{\"login\":\"um@email.com\",\"password\":\"654321\"}");
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/users/import").with(
+                        jwt().authorities(new SimpleGrantedAuthority("SCOPE_users:write")))
+                .contentType("application/x-ndjson").content(payload).header("Accept-Language", "pt-br");
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[*].line").value(Matchers.containsInAnyOrder(1, 1, 2, 4)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[?(@.line == 2)].message").value(
+                        Matchers.contains("O campo login já está cadastrado")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[?(@.line == 4)].message").value(
+                        Matchers.contains("O campo login está repetido na importação")));
+    }
+
+    @DisplayName("deve consultar na importação apenas os emails que o filtro de emails cadastrados pode conter")
+    @Test
+    void teste09() throws Exception {
+
+        userRepository.save(new User("cadastrado@email.com", Password.encode("123456")));
+        BloomFilteredLookup lookup = registeredEmails.getLookup();
+        long skipped = lookup.getSkippedLookups();
+
+        String payload = String.join("\n",
+                "{\"login\":\"filtro1@email.com\",\"password\":\"123456\"}",
+                "{\"login\":\"cadastrado@email.com\",\"password\":\"123456\"}",
+                "{\"login\":\"filtro2@email.com\",\"password\":\"123456\"}",
+                "{\"login\":\"filtro3@email.com\",\"password\":\"123456\"}");
 
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post("/api/users/import").with(
+                        jwt().authorities(new SimpleGrantedAuthority("SCOPE_users:write")))
+                .contentType("application/x-ndjson").content(payload).header("Accept-Language", "pt-br");
+
+        mockMvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].line").value(2));
 
-}
\ No newline at end of file
+        assertEquals(skipped + 3, lookup.getSkippedLookups());
+        assertTrue(lookup.getFilter().mightContain("filtro1@email.com"));
+    }
+}